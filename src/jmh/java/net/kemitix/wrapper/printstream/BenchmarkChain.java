@@ -0,0 +1,147 @@
+package net.kemitix.wrapper.printstream;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * The wrappers and chains of wrappers that are measured by the benchmarks.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public enum BenchmarkChain {
+
+    /**
+     * The core PrintStream, unwrapped, as a baseline.
+     */
+    CORE {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return core;
+        }
+    },
+
+    /**
+     * A single {@link PassthroughPrintStreamWrapper}.
+     */
+    PASSTHROUGH {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return new PassthroughPrintStreamWrapper(core);
+        }
+    },
+
+    /**
+     * A single {@link CopyPrintStreamWrapper}.
+     */
+    COPY {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.copy(core, copy);
+        }
+    },
+
+    /**
+     * A single {@link StringFilterPrintStreamWrapper}.
+     */
+    STRING_FILTER {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.filter(core, (String s) -> s.contains("ERROR"));
+        }
+    },
+
+    /**
+     * A single {@link ByteFilterPrintStreamWrapper}.
+     */
+    BYTE_FILTER {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.filter(core, (Byte b) -> b != '\r');
+        }
+    },
+
+    /**
+     * A single {@link StringTransformPrintStreamWrapper}.
+     */
+    STRING_TRANSFORM {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.transform(core, (PrintStreamWrapper.StringTransform) String::toUpperCase);
+        }
+    },
+
+    /**
+     * A single {@link ByteTransformPrintStreamWrapper}.
+     */
+    BYTE_TRANSFORM {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.transform(core, (Byte b) -> (byte) Character.toUpperCase((char) (byte) b));
+        }
+    },
+
+    /**
+     * A single {@link CompressPrintStreamWrapper}, at the fastest level.
+     */
+    COMPRESS {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.compress(core, Deflater.BEST_SPEED);
+        }
+    },
+
+    /**
+     * A single {@link CoalescingPrintStreamWrapper}, with an 8 KiB buffer and a 10 millisecond deadline.
+     */
+    COALESCE {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.coalesce(core, 8192, 10, TimeUnit.MILLISECONDS);
+        }
+    },
+
+    /**
+     * The chain from {@code UsageExampleTest}.
+     */
+    USAGE_EXAMPLE {
+        @Override
+        PrintStream wrap(final PrintStream core, final PrintStream copy) {
+            return PrintStreamWrapper.transform(
+                    PrintStreamWrapper.copy(
+                            PrintStreamWrapper.filter(core, (String o) -> o.contains("ERROR")),
+                            copy),
+                    (PrintStreamWrapper.StringTransform) String::toUpperCase);
+        }
+    };
+
+    /**
+     * Wrap the core PrintStream.
+     *
+     * @param core the PrintStream at the end of the chain
+     * @param copy the PrintStream to receive any copies
+     *
+     * @return the outermost PrintStream of the chain
+     */
+    abstract PrintStream wrap(PrintStream core, PrintStream copy);
+
+    /**
+     * A PrintStream that discards everything written to it, so that only the cost of the wrappers is measured.
+     *
+     * @return the PrintStream
+     */
+    static PrintStream discarding() {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+                // discard
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+                // discard
+            }
+        });
+    }
+}
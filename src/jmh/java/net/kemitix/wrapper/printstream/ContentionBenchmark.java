@@ -0,0 +1,75 @@
+package net.kemitix.wrapper.printstream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a chain shared by many threads, where each stage takes its own lock, with the same chain behind
+ * {@link PrintStreamWrapper#singleLock(PrintStream)} or {@link PrintStreamWrapper#threadBuffered(PrintStream)}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class ContentionBenchmark {
+
+    @Param({"USAGE_EXAMPLE", "PASSTHROUGH", "BYTE_FILTER"})
+    private BenchmarkChain chain;
+
+    @Param({"PER_STAGE", "SINGLE_LOCK", "THREAD_BUFFERED"})
+    private String locking;
+
+    private PrintStream printStream;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        final PrintStream wrapped = chain.wrap(BenchmarkChain.discarding(), BenchmarkChain.discarding());
+        switch (locking) {
+            case "SINGLE_LOCK":
+                printStream = PrintStreamWrapper.singleLock(wrapped);
+                break;
+            case "THREAD_BUFFERED":
+                printStream = PrintStreamWrapper.threadBuffered(wrapped);
+                break;
+            default:
+                printStream = wrapped;
+        }
+        bytes = "an ERROR message\n".getBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        printStream.close();
+    }
+
+    @Benchmark
+    public void println() {
+        printStream.println("an ERROR message");
+    }
+
+    @Benchmark
+    public void writeBytes() {
+        printStream.write(bytes, 0, bytes.length);
+    }
+}
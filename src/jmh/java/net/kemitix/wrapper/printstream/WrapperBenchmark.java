@@ -0,0 +1,107 @@
+package net.kemitix.wrapper.printstream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of each wrapper, and the chain from {@code UsageExampleTest}, for each kind of write and a
+ * range of payload sizes.
+ *
+ * <p>All threads share the same chain, as they would when it is installed as {@code System.out}. The nested classes
+ * run the benchmarks with different numbers of threads.</p>
+ *
+ * <p>Run with {@code mvn -P benchmark verify}. Per-operation allocation is reported by the {@code gc} profiler.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class WrapperBenchmark {
+
+    @Param
+    private BenchmarkChain chain;
+
+    @Param({"16", "256", "4096"})
+    private int payloadSize;
+
+    private PrintStream printStream;
+
+    private byte[] bytes;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        printStream = chain.wrap(BenchmarkChain.discarding(), BenchmarkChain.discarding());
+        final char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'e');
+        "ERROR ".getChars(0, Math.min(payloadSize, "ERROR ".length()), chars, 0);
+        text = new String(chars);
+        bytes = text.getBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        printStream.close();
+    }
+
+    @Benchmark
+    public void writeInt() {
+        printStream.write('e');
+    }
+
+    @Benchmark
+    public void writeBytes() {
+        printStream.write(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public void printString() {
+        printStream.print(text);
+    }
+
+    @Benchmark
+    public void println() {
+        printStream.println(text);
+    }
+
+    /**
+     * Runs the benchmarks on a single thread.
+     */
+    @Threads(1)
+    public static class SingleThread extends WrapperBenchmark {
+    }
+
+    /**
+     * Runs the benchmarks on four threads at once.
+     */
+    @Threads(4)
+    public static class FourThreads extends WrapperBenchmark {
+    }
+
+    /**
+     * Runs the benchmarks on sixteen threads at once.
+     */
+    @Threads(16)
+    public static class SixteenThreads extends WrapperBenchmark {
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapper for {@link PrintStream} that copies all writes to the supplied PrintStream from a background thread, and
+ * writes to any inner wrapper or, if there isn't one, to the core {@link PrintStream} directly.
+ *
+ * <p>The bytes for the copy are staged in a preallocated ring buffer of fixed capacity, which is drained by a daemon
+ * thread, so a slow copy target does not delay the writer. When the ring is full the {@link Backpressure} policy
+ * decides what happens to the writer or the bytes. The number of bytes dropped is available from
+ * {@link #getDroppedBytes()}.</p>
+ *
+ * <p>{@link #flush()} waits until the ring has been drained and then flushes the copy target. {@link #close()}
+ * drains the ring before closing the core {@link PrintStream}. The copy target is not closed.</p>
+ *
+ * <p>If the copy target throws, the bytes it was given are lost and {@link #checkError()} reports the failure. The
+ * drain carries on, so writers waiting for space and callers of {@link #flush()} are not held up.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ * @see CopyPrintStreamWrapper
+ */
+public final class AsyncCopyPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final int DRAIN_SIZE = 8192;
+
+    private final PrintStream copyTo;
+
+    private final ByteRingBuffer ring;
+
+    private final Thread drainer;
+
+    private volatile boolean copyFailed;
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param core         the PrintStream to wrap
+     * @param copyTo       the PrintStream to copy to
+     * @param capacity     the number of bytes the ring buffer can hold
+     * @param backpressure the policy for when the ring buffer is full
+     */
+    AsyncCopyPrintStreamWrapper(
+            final PrintStream core,
+            @NonNull final PrintStream copyTo,
+            final int capacity,
+            @NonNull final Backpressure backpressure
+                               ) {
+        super(core);
+        this.copyTo = copyTo;
+        this.ring = new ByteRingBuffer(capacity, backpressure);
+        this.drainer = new Thread(this::drain, "async-copy-print-stream");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private void drain() {
+        final byte[] buffer = new byte[DRAIN_SIZE];
+        try {
+            for (int count = ring.take(buffer); count >= 0; count = ring.take(buffer)) {
+                try {
+                    copyTo.write(buffer, 0, count);
+                } catch (RuntimeException e) {
+                    copyFailed = true;
+                } finally {
+                    ring.taken();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void write(final int b) {
+        received(1);
+        super.write(b);
+        try {
+            ring.put((byte) b);
+        } catch (InterruptedException e) {
+            onInterrupted();
+        }
+    }
+
+    @Override
+    public void write(final byte[] buf, final int off, final int len) {
+        received(len);
+        super.write(buf, off, len);
+        try {
+            ring.put(buf, off, len);
+        } catch (InterruptedException e) {
+            onInterrupted();
+        }
+    }
+
+    private void onInterrupted() {
+        Thread.currentThread().interrupt();
+        setError();
+    }
+
+    /**
+     * Flushes the core stream, waits for the ring buffer to be drained, then flushes the copy target.
+     */
+    @Override
+    public void flush() {
+        super.flush();
+        try {
+            ring.awaitDrained(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            onInterrupted();
+        }
+        copyTo.flush();
+    }
+
+    /**
+     * Drains the ring buffer, flushes the copy target and closes the core stream.
+     */
+    @Override
+    public void close() {
+        ring.close();
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            onInterrupted();
+        }
+        copyTo.flush();
+        super.close();
+    }
+
+    /**
+     * The number of bytes that were not copied because the ring buffer was full or closed.
+     *
+     * @return the number of bytes dropped
+     */
+    public long getDroppedBytes() {
+        return ring.getDroppedBytes();
+    }
+
+    /**
+     * The number of bytes waiting in the ring buffer to be copied.
+     *
+     * @return the number of bytes
+     */
+    public int getPendingBytes() {
+        return ring.getPendingBytes();
+    }
+
+    /**
+     * Flushes, then checks the error state of the wrapped PrintStream, and whether the copy target has thrown.
+     *
+     * @return true if there has been an error
+     */
+    @Override
+    public boolean checkError() {
+        return super.checkError() || copyFailed;
+    }
+
+    /**
+     * What to do when there is not enough space in the ring buffer for a write.
+     */
+    public enum Backpressure {
+
+        /**
+         * The writer waits until there is space.
+         */
+        BLOCK,
+
+        /**
+         * The bytes being written are not copied.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest bytes waiting to be copied are discarded to make space.
+         */
+        DROP_OLDEST
+    }
+}
@@ -21,37 +21,306 @@
 
 package net.kemitix.wrapper.printstream;
 
-import lombok.RequiredArgsConstructor;
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteFilter;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteTransform;
 
-import java.util.function.Consumer;
-import java.util.stream.IntStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a segment of a buffer of bytes.
  *
+ * <p>A segment is a view over {@code (buf, off, len)} that never copies the bytes it views. Segments are reusable:
+ * {@link #reset(byte[], int, int)} points an existing segment at a new buffer, so a wrapper can keep one per stream
+ * and process every write without creating garbage.</p>
+ *
+ * <p>Segments are not thread-safe.</p>
+ *
  * @author Paul Campbell (pcampbell@kemitix.net)
  */
-@RequiredArgsConstructor
 class ByteBufferSegment {
 
-    private final byte[] buf;
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] buf;
+
+    private int off;
 
-    private final int off;
+    private int len;
 
-    private final int len;
+    /**
+     * Constructor for an empty segment, to be {@link #reset(byte[], int, int)} before use.
+     */
+    ByteBufferSegment() {
+        this(EMPTY, 0, 0);
+    }
 
     /**
-     * Scan the buffer, from off to len, and give it to the byteConsumer.
+     * Constructor.
      *
-     * @param byteConsumer the consumer to process each byte
+     * @param buf the buffer
+     * @param off the offset of the segment
+     * @param len the length of the segment
+     *
+     * @throws IndexOutOfBoundsException if the segment does not lie within the buffer
+     */
+    ByteBufferSegment(final byte[] buf, final int off, final int len) {
+        reset(buf, off, len);
+    }
+
+    /**
+     * Checks that the segment, from off to len, lies within the buffer.
+     *
+     * @param buf the buffer
+     * @param off the offset of the segment
+     * @param len the length of the segment
+     *
+     * @throws IndexOutOfBoundsException if the segment does not lie within the buffer
      */
-    public void forEach(final Consumer<Byte> byteConsumer) {
-        if ((len < 0) || (buf.length < (off + len))) {
+    static void requireWithin(final byte[] buf, final int off, final int len) {
+        if ((off < 0) || (len < 0) || (buf.length - off < len)) {
             throw new IndexOutOfBoundsException(
                     String.format("buf.length: %d, off: %d, len: %d", buf.length, off, len));
         }
-        IntStream.range(off, off + len)
-                .map(i -> buf[i])
-                .forEach(b -> byteConsumer.accept((byte) b));
+    }
+
+    /**
+     * Points this segment at a new region of a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset the offset of the segment
+     * @param length the length of the segment
+     *
+     * @return this segment
+     *
+     * @throws IndexOutOfBoundsException if the segment does not lie within the buffer
+     */
+    ByteBufferSegment reset(@NonNull final byte[] buffer, final int offset, final int length) {
+        requireWithin(buffer, offset, length);
+        this.buf = buffer;
+        this.off = offset;
+        this.len = length;
+        return this;
+    }
+
+    /**
+     * The buffer that this segment is a view over.
+     *
+     * @return the buffer
+     */
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * The offset of the start of this segment within its buffer.
+     *
+     * @return the offset
+     */
+    int offset() {
+        return off;
+    }
+
+    /**
+     * The number of bytes in this segment.
+     *
+     * @return the length
+     */
+    int length() {
+        return len;
+    }
+
+    /**
+     * Whether there are no bytes in this segment.
+     *
+     * @return true if the segment is empty
+     */
+    boolean isEmpty() {
+        return len == 0;
+    }
+
+    /**
+     * Get a byte from the segment.
+     *
+     * @param index the index of the byte, relative to the start of this segment
+     *
+     * @return the byte
+     *
+     * @throws IndexOutOfBoundsException if the index is not within this segment
+     */
+    byte get(final int index) {
+        if ((index < 0) || (index >= len)) {
+            throw new IndexOutOfBoundsException(String.format("index: %d, len: %d", index, len));
+        }
+        return buf[off + index];
+    }
+
+    /**
+     * Find the first occurrence of a byte within the segment.
+     *
+     * @param b the byte to find
+     *
+     * @return the index of the byte, relative to the start of this segment, or -1 if it is not present
+     */
+    int indexOf(final byte b) {
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (buf[i] == b) {
+                return i - off;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scan the segment and give each byte to the byteConsumer.
+     *
+     * @param byteConsumer the consumer to process each byte
+     */
+    void forEach(final ByteConsumer byteConsumer) {
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            byteConsumer.accept(buf[i]);
+        }
+    }
+
+    /**
+     * Create a new segment over part of this one, without copying any bytes.
+     *
+     * @param from   the index of the start of the slice, relative to the start of this segment
+     * @param length the length of the slice
+     *
+     * @return the slice
+     *
+     * @throws IndexOutOfBoundsException if the slice does not lie within this segment
+     */
+    ByteBufferSegment slice(final int from, final int length) {
+        return slice(from, length, new ByteBufferSegment());
+    }
+
+    /**
+     * Point an existing segment at part of this one, without copying any bytes.
+     *
+     * @param from   the index of the start of the slice, relative to the start of this segment
+     * @param length the length of the slice
+     * @param into   the segment to reuse for the slice
+     *
+     * @return the reused segment
+     *
+     * @throws IndexOutOfBoundsException if the slice does not lie within this segment
+     */
+    ByteBufferSegment slice(final int from, final int length, final ByteBufferSegment into) {
+        requireWithin(from, length);
+        return into.reset(buf, off + from, length);
+    }
+
+    /**
+     * Move the start of this segment forward, dropping bytes from its front.
+     *
+     * @param count the number of bytes to skip
+     *
+     * @return this segment
+     *
+     * @throws IndexOutOfBoundsException if count is negative or more than the length of this segment
+     */
+    ByteBufferSegment skip(final int count) {
+        requireWithin(count, 0);
+        off += count;
+        len -= count;
+        return this;
+    }
+
+    /**
+     * Wrap this segment as a {@link ByteBuffer}, without copying any bytes.
+     *
+     * <p>The position and limit of the ByteBuffer mark the segment within the shared buffer.</p>
+     *
+     * @return a ByteBuffer backed by the same buffer
+     */
+    ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(buf, off, len);
+    }
+
+    /**
+     * Copy the bytes in this segment into an array.
+     *
+     * @param dst    the array to copy into
+     * @param dstOff the offset within dst to copy to
+     *
+     * @return the number of bytes copied
+     *
+     * @throws IndexOutOfBoundsException if dst can not hold all the bytes from dstOff
+     */
+    int copyTo(final byte[] dst, final int dstOff) {
+        System.arraycopy(buf, off, dst, dstOff, len);
+        return len;
+    }
+
+    /**
+     * Write the bytes in this segment to an OutputStream with a single write.
+     *
+     * @param out the OutputStream to write to
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(buf, off, len);
+    }
+
+    /**
+     * Filters bytes from the front of this segment into the start of an array, and moves past them.
+     *
+     * <p>As many bytes as the array can hold are processed, or all of them if fewer remain.</p>
+     *
+     * @param filter the filter to apply
+     * @param out    the array to receive the bytes that pass the filter
+     *
+     * @return the number of bytes placed in out
+     */
+    int filterInto(final PrimitiveByteFilter filter, final byte[] out) {
+        final int count = Math.min(len, out.length);
+        final int passed = filter.filter(buf, off, count, out);
+        skip(count);
+        return passed;
+    }
+
+    /**
+     * Transforms bytes from the front of this segment into the start of an array, and moves past them.
+     *
+     * <p>As many bytes as the array can hold are processed, or all of them if fewer remain.</p>
+     *
+     * @param transformer the transform to apply
+     * @param out         the array to receive the transformed bytes
+     *
+     * @return the number of bytes placed in out
+     */
+    int transformInto(final PrimitiveByteTransform transformer, final byte[] out) {
+        final int count = Math.min(len, out.length);
+        transformer.transform(buf, off, count, out);
+        skip(count);
+        return count;
+    }
+
+    private void requireWithin(final int from, final int length) {
+        if ((from < 0) || (length < 0) || (len - from < length)) {
+            throw new IndexOutOfBoundsException(
+                    String.format("len: %d, from: %d, length: %d", len, from, length));
+        }
+    }
+
+    /**
+     * Consumer of a primitive byte.
+     */
+    @FunctionalInterface
+    interface ByteConsumer {
+
+        /**
+         * Process the byte.
+         *
+         * @param b the byte
+         */
+        void accept(byte b);
     }
 }
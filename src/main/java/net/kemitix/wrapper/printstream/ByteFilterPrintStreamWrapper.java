@@ -22,6 +22,7 @@
 package net.kemitix.wrapper.printstream;
 
 import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteFilter;
 
 import java.io.PrintStream;
 import java.util.function.Predicate;
@@ -32,11 +33,22 @@ import java.util.function.Predicate;
  *
  * <p>If the Predicate returns {@code false} for the byte, then the byte will not be written.</p>
  *
+ * <p>A boxing {@link Predicate} is adapted to a {@link PrimitiveByteFilter}, which is used for all writes.</p>
+ *
+ * <p>Byte arrays are compacted into a scratch buffer and the bytes that pass the filter are written on with a single
+ * {@link #write(byte[], int, int)} for each scratch buffer's worth of input.</p>
+ *
  * @author Paul Campbell (pcampbell@kemitix.net)
  */
 class ByteFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
 
-    private final Predicate<Byte> predicate;
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final PrimitiveByteFilter filter;
+
+    private final ByteBufferSegment input = new ByteBufferSegment();
+
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
 
     /**
      * Constructor to wrap in existing PrintStream.
@@ -48,20 +60,54 @@ class ByteFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
             final PrintStream original,
             @NonNull final Predicate<Byte> predicate
                                        ) {
+        this(original, unboxed(predicate));
+    }
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param original the PrintStream to wrap
+     * @param filter   the primitive filter to apply to bytes
+     */
+    ByteFilterPrintStreamWrapper(
+            final PrintStream original,
+            @NonNull final PrimitiveByteFilter filter
+                                       ) {
         super(original);
-        this.predicate = predicate;
+        this.filter = filter;
+    }
+
+    private static PrimitiveByteFilter unboxed(@NonNull final Predicate<Byte> predicate) {
+        return predicate::test;
     }
 
     @Override
     public final void write(final int b) {
-        if (predicate.test((byte) b)) {
+        received(1);
+        if (filter.test((byte) b)) {
             super.write(b);
         }
     }
 
     @Override
     public final void write(final byte[] buf, final int off, final int len) {
-        new ByteBufferSegment(buf, off, len)
-                .forEach(this::write);
+        received(len);
+        if (hasOuterLock()) {
+            filterAndWrite(buf, off, len);
+        } else {
+            synchronized (this) {
+                filterAndWrite(buf, off, len);
+            }
+        }
+    }
+
+    private void filterAndWrite(final byte[] buf, final int off, final int len) {
+        input.reset(buf, off, len);
+        while (!input.isEmpty()) {
+            final int count = input.filterInto(filter, scratch);
+            if (count > 0) {
+                super.write(scratch, 0, count);
+            }
+        }
     }
 }
@@ -0,0 +1,286 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.AsyncCopyPrintStreamWrapper.Backpressure;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-capacity, preallocated ring of bytes with many producers and a single consumer.
+ *
+ * <p>When there is not enough space for a write, the {@link Backpressure} policy decides whether the producer waits,
+ * the new bytes are dropped, or the oldest bytes are discarded to make room. Bytes added after the ring is closed are
+ * dropped.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class ByteRingBuffer {
+
+    private final byte[] ring;
+
+    private final Backpressure backpressure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition drained = lock.newCondition();
+
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    private int head;
+
+    private int size;
+
+    private boolean consuming;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity     the number of bytes the ring can hold
+     * @param backpressure the policy for when the ring is full
+     */
+    ByteRingBuffer(final int capacity, final Backpressure backpressure) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.ring = new byte[capacity];
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Add a byte to the ring.
+     *
+     * @param b the byte
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    void put(final byte b) throws InterruptedException {
+        lock.lock();
+        try {
+            if (closed) {
+                droppedBytes.incrementAndGet();
+                return;
+            }
+            if (makeSpace(1)) {
+                ring[(head + size) % ring.length] = b;
+                size++;
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add bytes to the ring.
+     *
+     * @param buf A byte array
+     * @param off Offset from which to start taking bytes
+     * @param len Number of bytes to add
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    void put(final byte[] buf, final int off, final int len) throws InterruptedException {
+        lock.lock();
+        try {
+            if (closed) {
+                droppedBytes.addAndGet(len);
+                return;
+            }
+            int from = off;
+            int remaining = len;
+            if ((remaining > ring.length) && (backpressure == Backpressure.DROP_OLDEST)) {
+                droppedBytes.addAndGet(remaining - ring.length);
+                from += remaining - ring.length;
+                remaining = ring.length;
+            }
+            if ((remaining > ring.length) && (backpressure == Backpressure.DROP_NEWEST)) {
+                droppedBytes.addAndGet(remaining);
+                return;
+            }
+            while (remaining > 0) {
+                final int chunk = Math.min(remaining, ring.length);
+                if (!makeSpace(chunk)) {
+                    return;
+                }
+                copyIn(buf, from, chunk);
+                from += chunk;
+                remaining -= chunk;
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean makeSpace(final int count) throws InterruptedException {
+        while (ring.length - size < count) {
+            if (closed) {
+                droppedBytes.addAndGet(count);
+                return false;
+            }
+            switch (backpressure) {
+                case DROP_NEWEST:
+                    droppedBytes.addAndGet(count);
+                    return false;
+                case DROP_OLDEST:
+                    final int discard = count - (ring.length - size);
+                    head = (head + discard) % ring.length;
+                    size -= discard;
+                    droppedBytes.addAndGet(discard);
+                    break;
+                default:
+                    notFull.await();
+            }
+        }
+        return true;
+    }
+
+    private void copyIn(final byte[] buf, final int off, final int len) {
+        final int tail = (head + size) % ring.length;
+        final int first = Math.min(len, ring.length - tail);
+        System.arraycopy(buf, off, ring, tail, first);
+        System.arraycopy(buf, off + first, ring, 0, len - first);
+        size += len;
+    }
+
+    /**
+     * Move bytes from the ring into the array, waiting until there are some.
+     *
+     * <p>The consumer must call {@link #taken()} once it has finished with the bytes.</p>
+     *
+     * @param into the array to receive the bytes
+     *
+     * @return the number of bytes moved, or -1 if the ring is closed and empty
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    int take(final byte[] into) throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (closed) {
+                    return -1;
+                }
+                notEmpty.await();
+            }
+            final int count = Math.min(size, into.length);
+            final int first = Math.min(count, ring.length - head);
+            System.arraycopy(ring, head, into, 0, first);
+            System.arraycopy(ring, 0, into, first, count - first);
+            head = (head + count) % ring.length;
+            size -= count;
+            consuming = true;
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Signal that the consumer has finished with the bytes from the last {@link #take(byte[])}.
+     */
+    void taken() {
+        lock.lock();
+        try {
+            consuming = false;
+            if (size == 0) {
+                drained.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the consumer has finished with every byte added to the ring.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     *
+     * @return true if drained, false if the timeout expired first
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitDrained(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while ((size > 0) || consuming) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = drained.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting bytes. The consumer may still take those already in the ring.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of bytes discarded because the ring was full.
+     *
+     * @return the number of bytes dropped
+     */
+    long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    /**
+     * The number of bytes waiting in the ring.
+     *
+     * @return the number of bytes
+     */
+    int getPendingBytes() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
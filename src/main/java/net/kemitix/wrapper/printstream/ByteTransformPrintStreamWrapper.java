@@ -22,6 +22,7 @@
 package net.kemitix.wrapper.printstream;
 
 import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteTransform;
 
 import java.io.PrintStream;
 import java.util.function.Function;
@@ -31,13 +32,25 @@ import java.util.function.Function;
  * java.util.function.Function}, and passes the result on to any inner wrapper or, if there isn't one, to the core
  * {@link PrintStream}.
  *
+ * <p>A boxing {@link Function} is adapted to a {@link PrimitiveByteTransform}, which is used for all writes.</p>
+ *
+ * <p>Byte arrays are transformed into a scratch buffer and written on with a single {@link #write(byte[], int, int)}
+ * for each scratch buffer's worth of input. Use {@link PrimitiveByteTransform#compile()} to have each byte transformed
+ * by a single table lookup.</p>
+ *
  * @author Paul Campbell (pcampbell@kemitix.net)
  * @see StringTransformPrintStreamWrapper
  */
 class ByteTransformPrintStreamWrapper
         extends PassthroughPrintStreamWrapper {
 
-    private final Function<Byte, Byte> transformer;
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final PrimitiveByteTransform transformer;
+
+    private final ByteBufferSegment input = new ByteBufferSegment();
+
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
 
     /**
      * Constructor to wrap in existing PrintStream.
@@ -49,13 +62,31 @@ class ByteTransformPrintStreamWrapper
             final PrintStream original,
             @NonNull final Function<Byte, Byte> transformer
                                           ) {
+        this(original, unboxed(transformer));
+    }
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param original    the PrintStream to wrap
+     * @param transformer the primitive function to transform the byte
+     */
+    ByteTransformPrintStreamWrapper(
+            final PrintStream original,
+            @NonNull final PrimitiveByteTransform transformer
+                                          ) {
         super(original);
         this.transformer = transformer;
     }
 
+    private static PrimitiveByteTransform unboxed(@NonNull final Function<Byte, Byte> transformer) {
+        return transformer::apply;
+    }
+
     @Override
     public final void write(final int b) {
-        printStreamDelegate().write(transformer.apply((byte) b));
+        received(1);
+        super.write(transformer.apply((byte) b));
     }
 
     @Override
@@ -64,7 +95,21 @@ class ByteTransformPrintStreamWrapper
             final int off,
             final int len
                            ) {
-        new ByteBufferSegment(buf, off, len)
-                .forEach(this::write);
+        received(len);
+        if (hasOuterLock()) {
+            transformAndWrite(buf, off, len);
+        } else {
+            synchronized (this) {
+                transformAndWrite(buf, off, len);
+            }
+        }
+    }
+
+    private void transformAndWrite(final byte[] buf, final int off, final int len) {
+        input.reset(buf, off, len);
+        while (!input.isEmpty()) {
+            final int count = input.transformInto(transformer, scratch);
+            super.write(scratch, 0, count);
+        }
     }
 }
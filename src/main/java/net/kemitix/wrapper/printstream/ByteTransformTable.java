@@ -0,0 +1,71 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteTransform;
+
+/**
+ * A {@link PrimitiveByteTransform} that has been compiled into a lookup table of all 256 possible outputs.
+ *
+ * <p>The source transform is applied to each possible byte once, when the table is built. It must always give the
+ * same output for the same input.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class ByteTransformTable implements PrimitiveByteTransform {
+
+    private static final int TABLE_SIZE = 256;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private final byte[] table = new byte[TABLE_SIZE];
+
+    /**
+     * Constructor.
+     *
+     * @param transformer the transform to compile
+     */
+    ByteTransformTable(@NonNull final PrimitiveByteTransform transformer) {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = transformer.apply((byte) i);
+        }
+    }
+
+    @Override
+    public final byte apply(final byte b) {
+        return table[b & BYTE_MASK];
+    }
+
+    @Override
+    public final void transform(final byte[] in, final int off, final int len, final byte[] out) {
+        final byte[] lookup = table;
+        for (int i = 0; i < len; i++) {
+            out[i] = lookup[in[off + i] & BYTE_MASK];
+        }
+    }
+
+    @Override
+    public final PrimitiveByteTransform compile() {
+        return this;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapper for {@link PrintStream} that collects writes in a fixed buffer before writing them on to any inner wrapper
+ * or, if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>The buffer is written on with a single {@link #write(byte[], int, int)} when it is full, when the oldest byte in
+ * it has waited for the maximum delay, and, if requested, at the end of each line. Writes that are at least as large
+ * as the buffer are written on directly, after anything already buffered.</p>
+ *
+ * <p>The deadline is kept by the shared background timer, which only hands the buffer over to a thread owned by the
+ * wrapper to be written on, so a slow inner PrintStream holds up neither the timer nor the writers. That thread ends
+ * once it has been idle for a second. {@link #flush()} and {@link #close()} always write out everything buffered.
+ * Writes after {@link #close()} are dropped and set the error state.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class CoalescingPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final byte NEWLINE = '\n';
+
+    private static final long IDLE_SECONDS = 1;
+
+    private final byte[] buffer;
+
+    private final long maxDelayNanos;
+
+    private final boolean onNewline;
+
+    private final ThreadPoolExecutor drainer;
+
+    private final Runnable handOffTask = this::handOff;
+
+    private final Runnable deadlineTask = this::onDeadline;
+
+    private int count;
+
+    private ScheduledFuture<?> deadline;
+
+    private boolean closed;
+
+    /**
+     * Constructor to wrap an existing PrintStream.
+     *
+     * @param original  the PrintStream to wrap
+     * @param size      the size of the buffer
+     * @param maxDelay  the longest time a byte may wait in the buffer, or zero for no limit
+     * @param unit      the unit of the maximum delay
+     * @param onNewline whether to write on the buffer at the end of each line
+     */
+    CoalescingPrintStreamWrapper(
+            final PrintStream original,
+            final int size,
+            final long maxDelay,
+            @NonNull final TimeUnit unit,
+            final boolean onNewline
+                                ) {
+        super(original);
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay must not be negative: " + maxDelay);
+        }
+        this.buffer = new byte[size];
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.onNewline = onNewline;
+        if (maxDelay > 0) {
+            drainer = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "coalescing-print-stream");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            drainer.allowCoreThreadTimeOut(true);
+        } else {
+            drainer = null;
+        }
+    }
+
+    @Override
+    public final void write(final int b) {
+        received(1);
+        synchronized (this) {
+            if (closed) {
+                setError();
+                return;
+            }
+            startDeadline();
+            buffer[count] = (byte) b;
+            count++;
+            if (count == buffer.length || (onNewline && b == NEWLINE)) {
+                drain();
+            }
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        synchronized (this) {
+            if (closed) {
+                setError();
+                return;
+            }
+            if (len >= buffer.length) {
+                drain();
+                super.write(buf, off, len);
+                return;
+            }
+            if (count + len > buffer.length) {
+                drain();
+            }
+            startDeadline();
+            System.arraycopy(buf, off, buffer, count, len);
+            count += len;
+            if (count == buffer.length || (onNewline && containsNewline(buf, off, len))) {
+                drain();
+            }
+        }
+    }
+
+    private static boolean containsNewline(final byte[] buf, final int off, final int len) {
+        for (int i = off + len - 1; i >= off; i--) {
+            if (buf[i] == NEWLINE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startDeadline() {
+        if (count == 0 && drainer != null && deadline == null) {
+            deadline = DaemonScheduler.get().schedule(handOffTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void handOff() {
+        try {
+            drainer.execute(deadlineTask);
+        } catch (RejectedExecutionException e) {
+            // closed, and close has already written on everything buffered
+        }
+    }
+
+    private void onDeadline() {
+        synchronized (this) {
+            deadline = null;
+            drain();
+        }
+    }
+
+    private void drain() {
+        if (count > 0) {
+            final int length = count;
+            count = 0;
+            super.write(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Writes on everything buffered, then flushes the stream.
+     */
+    @Override
+    public void flush() {
+        synchronized (this) {
+            drain();
+        }
+        super.flush();
+    }
+
+    /**
+     * Writes on everything buffered, stops the background thread, then closes the stream.
+     *
+     * <p>It does not wait for the background thread to end, as any deadline that is still to run finds nothing to
+     * write, and it may be called from that thread.</p>
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (deadline != null) {
+                deadline.cancel(false);
+                deadline = null;
+            }
+            drain();
+        }
+        if (drainer != null) {
+            drainer.shutdown();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapper for {@link PrintStream} that collapses consecutive duplicate lines before writing to any inner wrapper or,
+ * if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>Each line is written the first time it is seen. Any lines that repeat it immediately after are held back and
+ * counted, then, when a different line arrives, a single {@code "(repeated N times)"} line is written ahead of it.
+ * Repeats are recognised from a hash of the raw bytes of each line, confirmed by comparing the bytes, so no String is
+ * created.</p>
+ *
+ * <p>Held back repeats are also reported when the stream is closed and, if a timeout is given, by the first write or
+ * flush after they have been held for that long. The shared background timer only marks them as due, and holds this
+ * stage only weakly, so a stage that is dropped without being closed can still be garbage collected. Any repeats
+ * after that start a new count. Flushing the stream does not otherwise report them, as a PrintStream with automatic
+ * flushing in front of this one flushes after every line.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class CollapseRepeatsPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final String MARKER = "(repeated %d times)%n";
+
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final LineBuffer lineBuffer = new LineBuffer();
+
+    private final LineBuffer.LineConsumer onLine = this::acceptLine;
+
+    private final ScheduledFuture<?> timer;
+
+    private byte[] last = new byte[0];
+
+    private int lastLength = -1;
+
+    private int lastHash;
+
+    private long repeats;
+
+    private volatile boolean reportDue;
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param original the PrintStream to wrap
+     * @param timeout  the longest time to hold back repeats before reporting them, or zero for no limit
+     * @param unit     the unit of the timeout
+     */
+    CollapseRepeatsPrintStreamWrapper(
+            final PrintStream original,
+            final long timeout,
+            @NonNull final TimeUnit unit
+                                     ) {
+        super(original);
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+        }
+        if (timeout > 0) {
+            timer = DaemonScheduler.scheduleWeakly(
+                    this, CollapseRepeatsPrintStreamWrapper::markReportDue, timeout, unit);
+        } else {
+            timer = null;
+        }
+    }
+
+    @Override
+    public final void write(final int b) {
+        received(1);
+        synchronized (this) {
+            reportIfDue();
+            lineBuffer.write(b, onLine);
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        received(len);
+        synchronized (this) {
+            reportIfDue();
+            lineBuffer.write(buf, off, len, onLine);
+        }
+    }
+
+    private void acceptLine(final byte[] line, final int off, final int len) {
+        final int hash = hash(line, off, len);
+        if (hash == lastHash && len == lastLength && sameAsLast(line, off)) {
+            repeats++;
+            return;
+        }
+        writeMarker();
+        super.write(line, off, len);
+        if (last.length < len) {
+            last = new byte[Math.max(len, last.length * 2)];
+        }
+        System.arraycopy(line, off, last, 0, len);
+        lastLength = len;
+        lastHash = hash;
+    }
+
+    private static int hash(final byte[] line, final int off, final int len) {
+        int hash = 1;
+        for (int i = off; i < off + len; i++) {
+            hash = HASH_MULTIPLIER * hash + line[i];
+        }
+        return hash;
+    }
+
+    private boolean sameAsLast(final byte[] line, final int off) {
+        for (int i = 0; i < lastLength; i++) {
+            if (line[off + i] != last[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeMarker() {
+        if (repeats > 0) {
+            final byte[] marker = String.format(MARKER, repeats).getBytes(Charset.defaultCharset());
+            repeats = 0;
+            super.write(marker, 0, marker.length);
+        }
+    }
+
+    private void markReportDue() {
+        reportDue = true;
+    }
+
+    private void reportIfDue() {
+        if (reportDue) {
+            reportDue = false;
+            writeMarker();
+        }
+    }
+
+    /**
+     * Reports any held back repeats that have passed the timeout, then flushes the stream.
+     */
+    @Override
+    public void flush() {
+        if (reportDue) {
+            synchronized (this) {
+                reportIfDue();
+            }
+        }
+        super.flush();
+    }
+
+    /**
+     * Writes any partial line and reports any held back repeats, then closes the stream.
+     */
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        synchronized (this) {
+            lineBuffer.drain(onLine);
+            writeMarker();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.SyncFlush;
+
+import java.io.PrintStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Wrapper for {@link PrintStream} that compresses all writes in the GZIP format before writing them to any inner
+ * wrapper or, if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>A single {@link Deflater} and output buffer are reused for every write. The compressed blocks are written out as
+ * the Deflater produces them. The {@link SyncFlush} policy decides when all the input so far is pushed out as complete
+ * blocks, so that the output can be decompressed up to that point even if the stream is never closed.</p>
+ *
+ * <p>The GZIP trailer is only written by {@link #close()}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class CompressPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int BYTE_BITS = 8;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final byte NEWLINE = '\n';
+
+    private final Deflater deflater;
+
+    private final SyncFlush syncFlush;
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] output = new byte[BUFFER_SIZE];
+
+    private final byte[] single = new byte[1];
+
+    private boolean headerWritten;
+
+    private boolean finished;
+
+    /**
+     * Constructor to wrap an existing PrintStream.
+     *
+     * @param target    the PrintStream to receive the compressed bytes
+     * @param level     the compression level, from 0 to 9, or -1 for the default
+     * @param syncFlush when to push out all the input so far
+     */
+    CompressPrintStreamWrapper(
+            final PrintStream target,
+            final int level,
+            @NonNull final SyncFlush syncFlush
+                              ) {
+        super(target);
+        this.deflater = new Deflater(level, true);
+        this.syncFlush = syncFlush;
+    }
+
+    @Override
+    public final void write(final int b) {
+        synchronized (this) {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        synchronized (this) {
+            if (finished) {
+                setError();
+                return;
+            }
+            writeHeader();
+            crc.update(buf, off, len);
+            deflater.setInput(buf, off, len);
+            while (!deflater.needsInput()) {
+                deflate(Deflater.NO_FLUSH);
+            }
+            if (syncFlush == SyncFlush.ON_NEWLINE && containsNewline(buf, off, len)) {
+                deflate(Deflater.SYNC_FLUSH);
+            }
+        }
+    }
+
+    private static boolean containsNewline(final byte[] buf, final int off, final int len) {
+        for (int i = off + len - 1; i >= off; i--) {
+            if (buf[i] == NEWLINE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeHeader() {
+        if (!headerWritten) {
+            headerWritten = true;
+            super.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+        }
+    }
+
+    /**
+     * Writes out compressed blocks until the Deflater has no more to give for the flush mode.
+     */
+    private void deflate(final int flushMode) {
+        int count;
+        do {
+            count = deflater.deflate(output, 0, output.length, flushMode);
+            if (count > 0) {
+                super.write(output, 0, count);
+            }
+        } while (count == output.length);
+    }
+
+    /**
+     * Pushes out all the input so far, unless the policy is {@link SyncFlush#NEVER}, then flushes the wrapped
+     * PrintStream.
+     */
+    @Override
+    public void flush() {
+        synchronized (this) {
+            if (!finished && headerWritten && syncFlush != SyncFlush.NEVER) {
+                deflate(Deflater.SYNC_FLUSH);
+            }
+        }
+        super.flush();
+    }
+
+    /**
+     * Writes the remaining compressed bytes and the GZIP trailer, then closes the wrapped PrintStream.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!finished) {
+                finished = true;
+                writeHeader();
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+                writeTrailer();
+                deflater.end();
+            }
+        }
+        super.close();
+    }
+
+    private void writeTrailer() {
+        final byte[] trailer = output;
+        putIntLittleEndian(trailer, 0, crc.getValue());
+        putIntLittleEndian(trailer, TRAILER_SIZE / 2, deflater.getBytesRead());
+        super.write(trailer, 0, TRAILER_SIZE);
+    }
+
+    private static void putIntLittleEndian(final byte[] buf, final int off, final long value) {
+        for (int i = 0; i < TRAILER_SIZE / 2; i++) {
+            buf[off + i] = (byte) ((value >> (i * BYTE_BITS)) & BYTE_MASK);
+        }
+    }
+}
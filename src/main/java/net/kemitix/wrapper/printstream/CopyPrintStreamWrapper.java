@@ -48,12 +48,14 @@ class CopyPrintStreamWrapper extends PassthroughPrintStreamWrapper {
 
     @Override
     public final void write(final int b) {
+        received(1);
         super.write(b);
         copyTo.write(b);
     }
 
     @Override
     public final void write(final byte[] buf, final int off, final int len) {
+        received(len);
         super.write(buf, off, len);
         copyTo.write(buf, off, len);
     }
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The single daemon thread shared by the wrappers and sinks that have work to do on a timer.
+ *
+ * <p>Tasks must be short, and must not block, as they all run on the same thread.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class DaemonScheduler {
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "print-stream-wrapper-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private DaemonScheduler() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The shared scheduler.
+     *
+     * @return the scheduler
+     */
+    static ScheduledExecutorService get() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Runs a task against an owner with a fixed delay between runs, holding the owner only by a weak reference.
+     *
+     * <p>An owner that is dropped without cancelling the task can still be garbage collected, after which the task
+     * cancels itself.</p>
+     *
+     * @param owner the object the task acts on
+     * @param task  the task, which must not hold a reference to the owner
+     * @param delay the delay before the first run, and between runs
+     * @param unit  the unit of the delay
+     * @param <T>   the type of the owner
+     *
+     * @return the future for cancelling the task
+     */
+    static <T> ScheduledFuture<?> scheduleWeakly(
+            final T owner,
+            final Consumer<? super T> task,
+            final long delay,
+            final TimeUnit unit
+                                                ) {
+        final WeakTask<T> weakTask = new WeakTask<>(owner, task);
+        final ScheduledFuture<?> future = SCHEDULER.scheduleWithFixedDelay(weakTask, delay, delay, unit);
+        weakTask.future = future;
+        return future;
+    }
+
+    /**
+     * A task that runs against its owner for as long as the owner has not been garbage collected.
+     *
+     * @param <T> the type of the owner
+     */
+    private static final class WeakTask<T> extends WeakReference<T> implements Runnable {
+
+        private final Consumer<? super T> task;
+
+        private volatile ScheduledFuture<?> future;
+
+        WeakTask(final T owner, final Consumer<? super T> task) {
+            super(owner);
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            final T owner = get();
+            if (owner != null) {
+                task.accept(owner);
+            } else if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
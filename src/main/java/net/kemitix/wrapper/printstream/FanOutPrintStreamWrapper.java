@@ -0,0 +1,292 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wrapper for {@link PrintStream} that copies all writes to any number of other PrintStreams, as well as to any inner
+ * wrapper or, if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>Without an {@link Executor}, each write is passed to the core and then to each other PrintStream in turn, on the
+ * caller's thread.</p>
+ *
+ * <p>With an {@link Executor}, the caller only waits for the core. The bytes are copied once into an immutable slice
+ * that is shared by all the other PrintStreams, which are each written to by tasks on the executor. Writes to each
+ * PrintStream keep their order, but the PrintStreams are written to in parallel. {@link #flush()} is passed on in
+ * order with the writes, and does not wait for them.</p>
+ *
+ * <p>If one of the other PrintStreams throws, or the executor rejects a task, the affected writes are lost and
+ * {@link #checkError()} reports the failure. Later writes are still passed on.</p>
+ *
+ * <p>The time taken by each write to each of the other PrintStreams is recorded and is available from
+ * {@link #getSinkLatencies()}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ * @see CopyPrintStreamWrapper
+ */
+public final class FanOutPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final byte[] FLUSH = new byte[0];
+
+    private final Sink[] sinks;
+
+    private final Executor executor;
+
+    private volatile boolean sinkFailed;
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param core     the PrintStream to wrap
+     * @param executor the Executor for writing to the other PrintStreams, or null to write on the caller's thread
+     * @param others   the PrintStreams to copy to
+     */
+    FanOutPrintStreamWrapper(
+            final PrintStream core,
+            final Executor executor,
+            @NonNull final PrintStream... others
+                            ) {
+        super(core);
+        this.executor = executor;
+        this.sinks = new Sink[others.length];
+        for (int i = 0; i < others.length; i++) {
+            sinks[i] = new Sink(Objects.requireNonNull(others[i], "others"));
+        }
+    }
+
+    @Override
+    public void write(final int b) {
+        received(1);
+        super.write(b);
+        if (executor == null) {
+            for (final Sink sink : sinks) {
+                sink.write(b);
+            }
+        } else {
+            dispatch(new byte[]{(byte) b});
+        }
+    }
+
+    @Override
+    public void write(final byte[] buf, final int off, final int len) {
+        received(len);
+        super.write(buf, off, len);
+        if (executor == null) {
+            for (final Sink sink : sinks) {
+                sink.write(buf, off, len);
+            }
+        } else if (len > 0) {
+            dispatch(Arrays.copyOfRange(buf, off, off + len));
+        }
+    }
+
+    private void dispatch(final byte[] slice) {
+        for (final Sink sink : sinks) {
+            sink.enqueue(slice);
+        }
+    }
+
+    /**
+     * Flushes the core and each of the other PrintStreams.
+     *
+     * <p>With an {@link Executor}, the other PrintStreams are flushed after their pending writes, without waiting.</p>
+     */
+    @Override
+    public void flush() {
+        super.flush();
+        for (final Sink sink : sinks) {
+            if (executor == null) {
+                sink.printStream.flush();
+            } else {
+                sink.enqueue(FLUSH);
+            }
+        }
+    }
+
+    /**
+     * Flushes, then checks the error state of the wrapped PrintStream, and whether any of the other PrintStreams, or
+     * the executor, has failed.
+     *
+     * @return true if there has been an error
+     */
+    @Override
+    public boolean checkError() {
+        return super.checkError() || sinkFailed;
+    }
+
+    /**
+     * The write latency for each of the other PrintStreams, in the order they were given.
+     *
+     * @return a snapshot of the latencies
+     */
+    public List<SinkLatency> getSinkLatencies() {
+        final List<SinkLatency> latencies = new ArrayList<>(sinks.length);
+        for (final Sink sink : sinks) {
+            latencies.add(sink.latency());
+        }
+        return Collections.unmodifiableList(latencies);
+    }
+
+    /**
+     * A snapshot of the time taken writing to one of the other PrintStreams.
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class SinkLatency {
+
+        /**
+         * The PrintStream written to.
+         */
+        private final PrintStream printStream;
+
+        /**
+         * The number of writes.
+         */
+        private final long writes;
+
+        /**
+         * The total time spent writing, in nanoseconds.
+         */
+        private final long totalNanos;
+
+        /**
+         * The longest time taken by a single write, in nanoseconds.
+         */
+        private final long maxNanos;
+
+        /**
+         * The mean time taken by a write, in nanoseconds.
+         *
+         * @return the mean, or zero if there have been no writes
+         */
+        public long getMeanNanos() {
+            if (writes == 0) {
+                return 0;
+            }
+            return totalNanos / writes;
+        }
+    }
+
+    /**
+     * One of the other PrintStreams, with its queue of pending writes and its latency counters.
+     */
+    private final class Sink implements Runnable {
+
+        private final PrintStream printStream;
+
+        private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final LongAdder writes = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Sink(final PrintStream printStream) {
+            this.printStream = printStream;
+        }
+
+        void write(final int b) {
+            final long start = System.nanoTime();
+            printStream.write(b);
+            record(System.nanoTime() - start);
+        }
+
+        void write(final byte[] buf, final int off, final int len) {
+            final long start = System.nanoTime();
+            printStream.write(buf, off, len);
+            record(System.nanoTime() - start);
+        }
+
+        private void record(final long nanos) {
+            writes.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void enqueue(final byte[] slice) {
+            pending.add(slice);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    pending.clear();
+                    scheduled.set(false);
+                    sinkFailed = true;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (byte[] slice = pending.poll(); slice != null; slice = pending.poll()) {
+                    pass(slice);
+                }
+            } finally {
+                scheduled.set(false);
+                if (!pending.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void pass(final byte[] slice) {
+            try {
+                if (slice == FLUSH) {
+                    printStream.flush();
+                } else {
+                    write(slice, 0, slice.length);
+                }
+            } catch (RuntimeException e) {
+                sinkFailed = true;
+            }
+        }
+
+        SinkLatency latency() {
+            return new SinkLatency(printStream, writes.sum(), totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.Wrapper;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Base wrapper for {@link PrintStream} that passes every call, unchanged and without taking its own monitor, to the
+ * PrintStream given by {@link #target()}.
+ *
+ * <p>Unlike {@link PassthroughPrintStreamWrapper}, text is not encoded by this wrapper, so the target sees the same
+ * {@code print}, {@code println} and {@code format} calls that were made on it. {@link #flush()} and {@link #close()}
+ * are left to the subclass. Each {@link #target()} is matched by a {@link #release(PrintStream)} once the call is
+ * complete.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+abstract class ForwardingPrintStreamWrapper extends PrintStream implements PrintStreamWrapper {
+
+    private final PrintStreamWrapper wrapper;
+
+    /**
+     * Constructor to wrap a PrintStream.
+     *
+     * @param original the PrintStream to wrap
+     */
+    ForwardingPrintStreamWrapper(final PrintStream original) {
+        super(original);
+        wrapper = new SubjectPrintStreamWrapper(original);
+    }
+
+    /**
+     * The PrintStream to pass the current call to.
+     *
+     * @return the PrintStream
+     */
+    protected abstract PrintStream target();
+
+    /**
+     * Called once each call passed to a PrintStream given by {@link #target()} has returned or thrown.
+     *
+     * <p>Does nothing unless overridden.</p>
+     *
+     * @param target the PrintStream that the call was passed to
+     */
+    protected void release(final PrintStream target) {
+    }
+
+    @Override
+    public void write(final int b) {
+        final PrintStream target = target();
+        try {
+            target.write(b);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void write(final byte[] buf, final int off, final int len) {
+        final PrintStream target = target();
+        try {
+            target.write(buf, off, len);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final boolean b) {
+        final PrintStream target = target();
+        try {
+            target.print(b);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final char c) {
+        final PrintStream target = target();
+        try {
+            target.print(c);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final int i) {
+        final PrintStream target = target();
+        try {
+            target.print(i);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final long l) {
+        final PrintStream target = target();
+        try {
+            target.print(l);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final float f) {
+        final PrintStream target = target();
+        try {
+            target.print(f);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final double d) {
+        final PrintStream target = target();
+        try {
+            target.print(d);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final char[] s) {
+        final PrintStream target = target();
+        try {
+            target.print(s);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final String s) {
+        final PrintStream target = target();
+        try {
+            target.print(s);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void print(final Object obj) {
+        final PrintStream target = target();
+        try {
+            target.print(obj);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println() {
+        final PrintStream target = target();
+        try {
+            target.println();
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final boolean x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final char x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final int x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final long x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final float x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final double x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final char[] x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final String x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public void println(final Object x) {
+        final PrintStream target = target();
+        try {
+            target.println(x);
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public PrintStream format(final String format, final Object... args) {
+        final PrintStream target = target();
+        try {
+            target.format(format, args);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream format(final Locale l, final String format, final Object... args) {
+        final PrintStream target = target();
+        try {
+            target.format(l, format, args);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream printf(final String format, final Object... args) {
+        final PrintStream target = target();
+        try {
+            target.format(format, args);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream printf(final Locale l, final String format, final Object... args) {
+        final PrintStream target = target();
+        try {
+            target.format(l, format, args);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq) {
+        final PrintStream target = target();
+        try {
+            target.append(csq);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq, final int start, final int end) {
+        final PrintStream target = target();
+        try {
+            target.append(csq, start, end);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream append(final char c) {
+        final PrintStream target = target();
+        try {
+            target.append(c);
+        } finally {
+            release(target);
+        }
+        return this;
+    }
+
+    @Override
+    public PrintStream getWrapperSubject() {
+        return wrapper.getWrapperSubject();
+    }
+
+    @Override
+    public final Optional<Wrapper<PrintStream>> getInnerWrapper() {
+        return Optional.of(wrapper);
+    }
+}
@@ -0,0 +1,423 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link OutputStream} that appends to a file, committing writes from all threads together in batches.
+ *
+ * <p>Writes are copied into pooled segments. A background thread commits the batch once it holds a threshold number
+ * of bytes, or once a threshold time has passed since its first write. It does this with a single gathering write
+ * followed by {@link FileChannel#force(boolean)}. Writers only wait while their bytes are copied. The batch is not
+ * bounded, so writers are not slowed when the storage device is.</p>
+ *
+ * <p>{@link #durable()} gives a future that completes once everything written so far has been committed.
+ * {@link #flush()} commits immediately and waits for it. Counters for the commits are available from
+ * {@link #getCommitStats()}.</p>
+ *
+ * <p>Use as a copy target with {@code new PrintStream(new GroupCommitOutputStream(path, bytes, millis))}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class GroupCommitOutputStream extends OutputStream {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private final int commitBytes;
+
+    private final long commitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition ready = lock.newCondition();
+
+    private final Deque<ByteBuffer> pool = new ArrayDeque<>();
+
+    private final Thread committer;
+
+    private Batch batch = new Batch();
+
+    private boolean commitNow;
+
+    private boolean closed;
+
+    private IOException failure;
+
+    private volatile CommitStats stats = new CommitStats(0, 0, 0, 0, 0);
+
+    /**
+     * Constructor.
+     *
+     * @param path        the file to append to
+     * @param commitBytes commit once at least this many bytes are waiting
+     * @param commitDelay commit once the oldest waiting write is this old
+     * @param unit        the unit of the commit delay
+     *
+     * @throws IOException if the file can't be opened
+     */
+    public GroupCommitOutputStream(
+            @NonNull final Path path,
+            final int commitBytes,
+            final long commitDelay,
+            @NonNull final TimeUnit unit
+                                  ) throws IOException {
+        if (commitBytes <= 0) {
+            throw new IllegalArgumentException("commitBytes must be positive: " + commitBytes);
+        }
+        if (commitDelay < 0) {
+            throw new IllegalArgumentException("commitDelay must not be negative: " + commitDelay);
+        }
+        this.commitBytes = commitBytes;
+        this.commitNanos = unit.toNanos(commitDelay);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.committer = new Thread(this::commitBatches, "group-commit-output-stream");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        lock.lock();
+        try {
+            ensureWritable();
+            batch.segmentWithSpace().put((byte) b);
+            added(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(@NonNull final byte[] buf, final int off, final int len) throws IOException {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        lock.lock();
+        try {
+            ensureWritable();
+            int from = off;
+            int remaining = len;
+            while (remaining > 0) {
+                final ByteBuffer segment = batch.segmentWithSpace();
+                final int count = Math.min(remaining, segment.remaining());
+                segment.put(buf, from, count);
+                from += count;
+                remaining -= count;
+            }
+            added(len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureWritable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (failure != null) {
+            throw new IOException("Commit failed", failure);
+        }
+    }
+
+    private void added(final int count) {
+        if (batch.bytes == 0) {
+            batch.started = System.nanoTime();
+            ready.signal();
+        }
+        batch.bytes += count;
+        if (batch.bytes >= commitBytes) {
+            ready.signal();
+        }
+    }
+
+    /**
+     * A future that completes when everything written so far has been committed.
+     *
+     * @return the future, which completes exceptionally if the commit fails
+     */
+    public CompletableFuture<Void> durable() {
+        lock.lock();
+        try {
+            if (batch.bytes == 0) {
+                return batch.previous;
+            }
+            return batch.committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits everything written so far without waiting for the thresholds, and waits for the commit.
+     *
+     * @throws IOException if the commit fails
+     */
+    @Override
+    public void flush() throws IOException {
+        final CompletableFuture<Void> committed;
+        lock.lock();
+        try {
+            committed = durable();
+            commitNow = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        await(committed);
+    }
+
+    private static void await(final CompletableFuture<Void> committed) throws IOException {
+        try {
+            committed.join();
+        } catch (CompletionException e) {
+            throw new IOException("Commit failed", e.getCause());
+        }
+    }
+
+    private void commitBatches() {
+        try {
+            for (Batch next = nextBatch(); next != null; next = nextBatch()) {
+                commit(next);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Batch nextBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed && !isDue()) {
+                if (batch.bytes == 0) {
+                    ready.await();
+                } else {
+                    ready.awaitNanos(commitNanos - (System.nanoTime() - batch.started));
+                }
+            }
+            if (batch.bytes == 0) {
+                return null;
+            }
+            final Batch due = batch;
+            batch = new Batch();
+            batch.previous = due.committed;
+            commitNow = false;
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isDue() {
+        return batch.bytes > 0
+                && (commitNow || batch.bytes >= commitBytes || System.nanoTime() - batch.started >= commitNanos);
+    }
+
+    private void commit(final Batch due) {
+        final ByteBuffer[] buffers = due.segments.toArray(new ByteBuffer[0]);
+        for (final ByteBuffer buffer : buffers) {
+            buffer.flip();
+        }
+        final long start = System.nanoTime();
+        try {
+            long remaining = due.bytes;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+            record(due.bytes, System.nanoTime() - start);
+            due.committed.complete(null);
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+            } finally {
+                lock.unlock();
+            }
+            due.committed.completeExceptionally(e);
+        }
+        lock.lock();
+        try {
+            for (final ByteBuffer buffer : buffers) {
+                buffer.clear();
+                pool.push(buffer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(final long bytes, final long nanos) {
+        final CommitStats previous = stats;
+        stats = new CommitStats(
+                previous.commits + 1,
+                previous.bytes + bytes,
+                Math.max(previous.maxBatchBytes, bytes),
+                previous.totalNanos + nanos,
+                Math.max(previous.maxNanos, nanos));
+    }
+
+    /**
+     * A snapshot of the counters for the commits so far.
+     *
+     * @return the counters
+     */
+    public CommitStats getCommitStats() {
+        return stats;
+    }
+
+    /**
+     * Commits everything written, then closes the file.
+     *
+     * @throws IOException if the final commit fails, or the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        final CompletableFuture<Void> committed;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            committed = durable();
+            closed = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            await(committed);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * The bytes waiting for the same commit, and the future for that commit.
+     */
+    private final class Batch {
+
+        private final List<ByteBuffer> segments = new ArrayList<>();
+
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        private CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+
+        private long bytes;
+
+        private long started;
+
+        private ByteBuffer segmentWithSpace() {
+            if (segments.isEmpty() || !segments.get(segments.size() - 1).hasRemaining()) {
+                final ByteBuffer pooled = pool.poll();
+                if (pooled == null) {
+                    segments.add(ByteBuffer.allocate(SEGMENT_SIZE));
+                } else {
+                    segments.add(pooled);
+                }
+            }
+            return segments.get(segments.size() - 1);
+        }
+    }
+
+    /**
+     * A snapshot of the counters for the commits made.
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class CommitStats {
+
+        /**
+         * The number of commits.
+         */
+        private final long commits;
+
+        /**
+         * The total number of bytes committed.
+         */
+        private final long bytes;
+
+        /**
+         * The largest number of bytes in a single commit.
+         */
+        private final long maxBatchBytes;
+
+        /**
+         * The total time spent writing and forcing, in nanoseconds.
+         */
+        private final long totalNanos;
+
+        /**
+         * The longest time taken by a single commit, in nanoseconds.
+         */
+        private final long maxNanos;
+
+        /**
+         * The mean number of bytes in a commit.
+         *
+         * @return the mean, or zero if there have been no commits
+         */
+        public long getMeanBatchBytes() {
+            if (commits == 0) {
+                return 0;
+            }
+            return bytes / commits;
+        }
+
+        /**
+         * The mean time taken by a commit, in nanoseconds.
+         *
+         * @return the mean, or zero if there have been no commits
+         */
+        public long getMeanNanos() {
+            if (commits == 0) {
+                return 0;
+            }
+            return totalNanos / commits;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Controls the instrumentation of wrappers, and gives access to the {@link StageMetrics} of each instrumented stage.
+ *
+ * <p>Instrumentation is off by default. It may be turned on with the system property
+ * {@value #PROPERTY}{@code =true}, or with {@link #setEnabled(boolean)}, and applies to the wrappers created while it
+ * is on. A wrapper that is not instrumented only pays for checking a final field on each write.</p>
+ *
+ * <p>Each instrumented stage is registered with the platform MBean server, as {@code type=Stage} under
+ * {@value #DOMAIN}, until it is closed or garbage collected. Only a weak reference to the stage is held, so a stage
+ * that is dropped without being closed is unregistered the next time a stage is registered or {@link #getStages()}
+ * is called. The metrics for all the stages that are still registered can be pulled with {@link #getStages()}, and
+ * for a single stage with {@link #metricsOf(PrintStream)}.</p>
+ *
+ * <p>Only wrappers based on {@code PassthroughPrintStreamWrapper} are instrumented.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class Instrumentation {
+
+    /**
+     * The system property that turns on instrumentation when set to {@code true}.
+     */
+    public static final String PROPERTY = "net.kemitix.wrapper.printstream.instrumentation";
+
+    /**
+     * The JMX domain that stages are registered under.
+     */
+    public static final String DOMAIN = "net.kemitix.wrapper.printstream";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final Map<StageMetrics, Registration> STAGES = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<PassthroughPrintStreamWrapper> COLLECTED = new ReferenceQueue<>();
+
+    private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    private Instrumentation() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Whether wrappers created now will be instrumented.
+     *
+     * @return true if instrumentation is on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn instrumentation on or off for wrappers created from now on. Existing wrappers are not changed.
+     *
+     * @param enabled true to turn instrumentation on
+     */
+    public static void setEnabled(final boolean enabled) {
+        Instrumentation.enabled = enabled;
+    }
+
+    /**
+     * The metrics for every instrumented stage that has not been closed.
+     *
+     * @return the metrics, in no particular order
+     */
+    public static List<StageMetrics> getStages() {
+        unregisterCollected();
+        return new ArrayList<>(STAGES.keySet());
+    }
+
+    /**
+     * The metrics for a stage.
+     *
+     * @param printStream the stage
+     *
+     * @return the metrics, or empty if the stage is not instrumented
+     */
+    public static Optional<StageMetrics> metricsOf(final PrintStream printStream) {
+        if (printStream instanceof PassthroughPrintStreamWrapper) {
+            return ((PassthroughPrintStreamWrapper) printStream).getMetrics();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Create and register the metrics for a new stage, if instrumentation is on.
+     *
+     * @param stage the stage
+     *
+     * @return the metrics, or null if instrumentation is off
+     */
+    static StageMetrics register(final PassthroughPrintStreamWrapper stage) {
+        if (!enabled) {
+            return null;
+        }
+        unregisterCollected();
+        final Class<? extends PassthroughPrintStreamWrapper> type = stage.getClass();
+        final String name = type.getSimpleName() + "-" + SEQUENCE.incrementAndGet();
+        final StageMetrics metrics = new StageMetrics(name, !overridesWrite(type));
+        final ObjectName objectName = objectName(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            // the metrics are still available through getStages()
+        }
+        STAGES.put(metrics, new Registration(stage, metrics, objectName));
+        return metrics;
+    }
+
+    private static ObjectName objectName(final String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=Stage,name=" + name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean overridesWrite(final Class<?> type) {
+        try {
+            return type.getMethod("write", byte[].class, int.class, int.class).getDeclaringClass()
+                    != PassthroughPrintStreamWrapper.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Remove the metrics for a closed stage.
+     *
+     * @param metrics the metrics
+     */
+    static void unregister(final StageMetrics metrics) {
+        final Registration registration = STAGES.remove(metrics);
+        if (registration != null) {
+            registration.clear();
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registration.objectName);
+            } catch (JMException e) {
+                // already unregistered
+            }
+        }
+    }
+
+    private static void unregisterCollected() {
+        Reference<? extends PassthroughPrintStreamWrapper> collected = COLLECTED.poll();
+        while (collected != null) {
+            unregister(((Registration) collected).metrics);
+            collected = COLLECTED.poll();
+        }
+    }
+
+    /**
+     * A weak reference to an instrumented stage, queued once the stage has been garbage collected.
+     */
+    private static final class Registration extends WeakReference<PassthroughPrintStreamWrapper> {
+
+        private final StageMetrics metrics;
+
+        private final ObjectName objectName;
+
+        /**
+         * Constructor.
+         *
+         * @param stage      the stage
+         * @param metrics    the metrics of the stage
+         * @param objectName the name the metrics are registered under
+         */
+        Registration(
+                final PassthroughPrintStreamWrapper stage,
+                final StageMetrics metrics,
+                final ObjectName objectName
+                    ) {
+            super(stage, COLLECTED);
+            this.metrics = metrics;
+            this.objectName = objectName;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+
+/**
+ * An Aho-Corasick automaton over bytes that finds any of a set of keywords in a single pass.
+ *
+ * <p>The automaton is built into a dense transition table, with a row of 256 next states for each state, so that
+ * each byte costs a single array lookup whatever the number of keywords.</p>
+ *
+ * <p>A KeywordAutomaton is immutable and may be shared between threads. The current state belongs to the caller.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class KeywordAutomaton {
+
+    /**
+     * The state before any bytes have been seen.
+     */
+    static final int START = 0;
+
+    private static final int ALPHABET = 256;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final int NONE = -1;
+
+    private final int[] delta;
+
+    private final boolean[] matches;
+
+    /**
+     * Constructor.
+     *
+     * @param keywords the keywords to find, none of which may be empty
+     */
+    KeywordAutomaton(@NonNull final Collection<byte[]> keywords) {
+        int maxStates = 1;
+        for (final byte[] keyword : keywords) {
+            if (keyword.length == 0) {
+                throw new IllegalArgumentException("keywords must not be empty");
+            }
+            maxStates += keyword.length;
+        }
+        final int[] trie = new int[maxStates * ALPHABET];
+        Arrays.fill(trie, NONE);
+        final boolean[] accepts = new boolean[maxStates];
+        int states = 1;
+        for (final byte[] keyword : keywords) {
+            int state = START;
+            for (final byte b : keyword) {
+                final int edge = state * ALPHABET + (b & BYTE_MASK);
+                if (trie[edge] == NONE) {
+                    trie[edge] = states;
+                    states++;
+                }
+                state = trie[edge];
+            }
+            accepts[state] = true;
+        }
+        delta = Arrays.copyOf(trie, states * ALPHABET);
+        matches = Arrays.copyOf(accepts, states);
+        link(delta, matches);
+    }
+
+    /**
+     * Replace the missing edges of the trie with the transitions of the longest matching suffix, visiting states in
+     * breadth-first order so that each suffix state is complete before it is used.
+     */
+    private static void link(final int[] delta, final boolean[] matches) {
+        final int[] failure = new int[matches.length];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            final int next = delta[c];
+            if (next == NONE) {
+                delta[c] = START;
+            } else {
+                failure[next] = START;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            matches[state] |= matches[failure[state]];
+            final int row = state * ALPHABET;
+            final int failureRow = failure[state] * ALPHABET;
+            for (int c = 0; c < ALPHABET; c++) {
+                final int next = delta[row + c];
+                if (next == NONE) {
+                    delta[row + c] = delta[failureRow + c];
+                } else {
+                    failure[next] = delta[failureRow + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state after reading a byte.
+     *
+     * @param state the current state
+     * @param b     the byte
+     *
+     * @return the next state
+     */
+    int next(final int state, final byte b) {
+        return delta[state * ALPHABET + (b & BYTE_MASK)];
+    }
+
+    /**
+     * Whether any keyword ends at the state.
+     *
+     * @param state the state
+     *
+     * @return true if a keyword has been found
+     */
+    boolean isMatch(final int state) {
+        return matches[state];
+    }
+
+    /**
+     * Whether any keyword appears within the bytes.
+     *
+     * @param buf A byte array
+     * @param off Offset from which to start scanning
+     * @param len Number of bytes to scan
+     *
+     * @return true if a keyword was found
+     */
+    boolean find(final byte[] buf, final int off, final int len) {
+        int state = START;
+        for (int i = off; i < off + len; i++) {
+            state = next(state, buf[i]);
+            if (matches[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
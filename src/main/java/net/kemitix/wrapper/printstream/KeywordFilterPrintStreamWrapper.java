@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.KeywordMode;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Wrapper for {@link PrintStream} that passes or drops whole lines depending on whether they contain any of a set of
+ * keywords.
+ *
+ * <p>Every byte written is scanned once by a {@link KeywordAutomaton}. Its state is carried from one write to the
+ * next, so a keyword split across writes is still found.</p>
+ *
+ * <p>Bytes are held back only while the outcome of the line is unknown. Once a keyword is found the rest of the line
+ * is forwarded as it arrives when {@link KeywordMode#INCLUDE including}, or discarded without being held when
+ * {@link KeywordMode#EXCLUDE excluding}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class KeywordFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final byte NEWLINE = '\n';
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final KeywordAutomaton automaton;
+
+    private final boolean include;
+
+    private final byte[] single = new byte[1];
+
+    private byte[] pending = new byte[INITIAL_CAPACITY];
+
+    private int count;
+
+    private int state = KeywordAutomaton.START;
+
+    private boolean matched;
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param original  the PrintStream to wrap
+     * @param automaton the automaton for the keywords
+     * @param mode      whether to include or exclude the lines that contain a keyword
+     */
+    KeywordFilterPrintStreamWrapper(
+            final PrintStream original,
+            @NonNull final KeywordAutomaton automaton,
+            @NonNull final KeywordMode mode
+                                   ) {
+        super(original);
+        this.automaton = automaton;
+        this.include = mode == KeywordMode.INCLUDE;
+    }
+
+    @Override
+    public final void write(final int b) {
+        synchronized (this) {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        synchronized (this) {
+            final int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                final byte b = buf[i];
+                if (!matched) {
+                    state = automaton.next(state, b);
+                    if (automaton.isMatch(state)) {
+                        matched = true;
+                        found(buf, start, i + 1 - start);
+                        start = i + 1;
+                    }
+                }
+                if (b == NEWLINE) {
+                    endOfLine(buf, start, i + 1 - start);
+                    start = i + 1;
+                }
+            }
+            partial(buf, start, end - start);
+        }
+    }
+
+    private void found(final byte[] buf, final int off, final int len) {
+        if (include) {
+            flushPending();
+            forward(buf, off, len);
+        } else {
+            count = 0;
+        }
+    }
+
+    private void endOfLine(final byte[] buf, final int off, final int len) {
+        if (matched == include) {
+            if (count == 0) {
+                forward(buf, off, len);
+            } else {
+                append(buf, off, len);
+                flushPending();
+            }
+        }
+        count = 0;
+        state = KeywordAutomaton.START;
+        matched = false;
+    }
+
+    private void partial(final byte[] buf, final int off, final int len) {
+        if (!matched) {
+            append(buf, off, len);
+        } else if (include) {
+            forward(buf, off, len);
+        }
+    }
+
+    private void flushPending() {
+        final int length = count;
+        count = 0;
+        forward(pending, 0, length);
+    }
+
+    private void forward(final byte[] buf, final int off, final int len) {
+        if (len > 0) {
+            super.write(buf, off, len);
+        }
+    }
+
+    private void append(final byte[] buf, final int off, final int len) {
+        if (count + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(count + len, pending.length * 2));
+        }
+        System.arraycopy(buf, off, pending, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes any partial line that did not contain a keyword when excluding, then closes the stream.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!matched && !include) {
+                flushPending();
+            }
+            count = 0;
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.util.Arrays;
+
+/**
+ * Assembles bytes into complete lines, each ending with a {@code '\n'}.
+ *
+ * <p>Complete lines are given to a {@link LineConsumer}. When there is no partial line waiting, a line is given
+ * directly from the caller's buffer without being copied. Otherwise the bytes are collected in a reusable buffer that
+ * grows to fit the longest line seen.</p>
+ *
+ * <p>A line is only valid for the duration of the call to the {@link LineConsumer}.</p>
+ *
+ * <p>LineBuffers are not thread-safe.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class LineBuffer {
+
+    private static final byte NEWLINE = '\n';
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] pending = new byte[INITIAL_CAPACITY];
+
+    private int count;
+
+    /**
+     * Add bytes and pass on each line they complete.
+     *
+     * @param buf      A byte array
+     * @param off      Offset from which to start taking bytes
+     * @param len      Number of bytes to add
+     * @param consumer the consumer for each complete line
+     */
+    void write(final byte[] buf, final int off, final int len, final LineConsumer consumer) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        final int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            if (buf[i] == NEWLINE) {
+                if (count == 0) {
+                    consumer.accept(buf, start, i + 1 - start);
+                } else {
+                    append(buf, start, i + 1 - start);
+                    complete(consumer);
+                }
+                start = i + 1;
+            }
+        }
+        append(buf, start, end - start);
+    }
+
+    /**
+     * Add a byte and pass on the line if it completes one.
+     *
+     * @param b        the byte
+     * @param consumer the consumer for a complete line
+     */
+    void write(final int b, final LineConsumer consumer) {
+        ensureCapacity(count + 1);
+        pending[count] = (byte) b;
+        count++;
+        if (b == NEWLINE) {
+            complete(consumer);
+        }
+    }
+
+    /**
+     * Pass on any partial line, without a line ending, and empty the buffer.
+     *
+     * @param consumer the consumer for the partial line
+     */
+    void drain(final LineConsumer consumer) {
+        if (count > 0) {
+            complete(consumer);
+        }
+    }
+
+    /**
+     * Whether there is no partial line waiting.
+     *
+     * @return true if the buffer is empty
+     */
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    private void complete(final LineConsumer consumer) {
+        final int length = count;
+        count = 0;
+        consumer.accept(pending, 0, length);
+    }
+
+    private void append(final byte[] buf, final int off, final int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(buf, off, pending, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(capacity, pending.length * 2));
+        }
+    }
+
+    /**
+     * Receives each line.
+     */
+    @FunctionalInterface
+    interface LineConsumer {
+
+        /**
+         * Process the line.
+         *
+         * @param buf the array holding the line
+         * @param off the offset of the start of the line
+         * @param len the length of the line, including its line ending
+         */
+        void accept(byte[] buf, int off, int len);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.ByteLineFilter;
+
+import java.io.PrintStream;
+
+/**
+ * Wrapper for {@link PrintStream} that assembles all writes into lines and tests the raw bytes of each line with a
+ * supplied {@link ByteLineFilter} before writing to any inner wrapper or, if there isn't one, to the core
+ * {@link PrintStream}.
+ *
+ * <p>If the filter returns {@code false} for the line, then none of the line, including its line ending, will be
+ * written. Each line that passes is written with a single {@link #write(byte[], int, int)}.</p>
+ *
+ * <p>Unlike {@link StringFilterPrintStreamWrapper}, every write is checked, whether it arrives through
+ * {@code print}, {@code println}, {@code printf} or {@code write}, and no String is created.</p>
+ *
+ * <p>A line is not written until its line ending has been written, or the stream is closed.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class LineFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private final ByteLineFilter filter;
+
+    private final LineBuffer lineBuffer = new LineBuffer();
+
+    private final LineBuffer.LineConsumer onLine = this::acceptLine;
+
+    /**
+     * Constructor to wrap in existing PrintStream.
+     *
+     * @param original the PrintStream to wrap
+     * @param filter   the filter to apply to each line
+     */
+    LineFilterPrintStreamWrapper(
+            final PrintStream original,
+            @NonNull final ByteLineFilter filter
+                                ) {
+        super(original);
+        this.filter = filter;
+    }
+
+    @Override
+    public final void write(final int b) {
+        received(1);
+        if (hasOuterLock()) {
+            lineBuffer.write(b, onLine);
+        } else {
+            synchronized (this) {
+                lineBuffer.write(b, onLine);
+            }
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        received(len);
+        if (hasOuterLock()) {
+            lineBuffer.write(buf, off, len, onLine);
+        } else {
+            synchronized (this) {
+                lineBuffer.write(buf, off, len, onLine);
+            }
+        }
+    }
+
+    private void acceptLine(final byte[] line, final int off, final int len) {
+        if (filter.test(line, off, len)) {
+            super.write(line, off, len);
+        }
+    }
+
+    /**
+     * Tests any partial line, writing it if it passes, then closes the stream.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            lineBuffer.drain(onLine);
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.ByteLineFilter;
+
+/**
+ * A {@link ByteLineFilter} that matches a literal sequence of bytes within a line, or at its start.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class LiteralByteLineFilter implements ByteLineFilter {
+
+    private final byte[] literal;
+
+    private final boolean prefixOnly;
+
+    /**
+     * Constructor.
+     *
+     * @param literal    the bytes to find
+     * @param prefixOnly true to only match at the start of the line
+     */
+    LiteralByteLineFilter(@NonNull final byte[] literal, final boolean prefixOnly) {
+        this.literal = literal.clone();
+        this.prefixOnly = prefixOnly;
+    }
+
+    @Override
+    public boolean test(final byte[] line, final int off, final int len) {
+        if (prefixOnly) {
+            return matchesAt(line, off, len);
+        }
+        final int last = off + len - literal.length;
+        for (int i = off; i <= last; i++) {
+            if (matchesAt(line, i, off + len - i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAt(final byte[] line, final int at, final int available) {
+        if (available < literal.length) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; i++) {
+            if (line[at + i] != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
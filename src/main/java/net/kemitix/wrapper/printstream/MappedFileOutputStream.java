@@ -0,0 +1,230 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link OutputStream} that appends to a file through a memory-mapped window.
+ *
+ * <p>Writes are copied into a {@link MappedByteBuffer}, with no system call on the writer's thread until the window
+ * is full and the next one is mapped. A background thread owned by the stream forces the windows to the storage
+ * device on a fixed interval, so a slow device holds up that thread and not the writers. {@link #force()} forces
+ * them at once, on the caller's thread. On {@link #close()} the file is forced and then truncated to the bytes
+ * actually written, removing the unused part of the last window.</p>
+ *
+ * <p>Use as a copy target with {@code new PrintStream(new MappedFileOutputStream(path))}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class MappedFileOutputStream extends OutputStream {
+
+    private static final int DEFAULT_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private static final long DEFAULT_FORCE_INTERVAL_MILLIS = 1000;
+
+    private final FileChannel channel;
+
+    private final int windowSize;
+
+    private final List<MappedByteBuffer> unforced = new ArrayList<>();
+
+    private final ScheduledExecutorService forcer;
+
+    private final Object forceLock = new Object();
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private boolean closed;
+
+    /**
+     * Constructor using a 16 MiB window, forced once a second.
+     *
+     * @param path the file to append to
+     *
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public MappedFileOutputStream(final Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE, DEFAULT_FORCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param path          the file to append to
+     * @param windowSize    the number of bytes to map at a time
+     * @param forceInterval the time between forcing written bytes to the storage device, or zero to only force when
+     *                      {@link #force()} is called and on close
+     * @param unit          the unit of the force interval
+     *
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public MappedFileOutputStream(
+            @NonNull final Path path,
+            final int windowSize,
+            final long forceInterval,
+            @NonNull final TimeUnit unit
+                                 ) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        if (forceInterval < 0) {
+            throw new IllegalArgumentException("forceInterval must not be negative: " + forceInterval);
+        }
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.windowStart = channel.size();
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        if (forceInterval > 0) {
+            forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "mapped-file-output-stream");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forcer.scheduleWithFixedDelay(this::forceQuietly, forceInterval, forceInterval, unit);
+        } else {
+            forcer = null;
+        }
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        ensureOpen();
+        if (!window.hasRemaining()) {
+            nextWindow();
+        }
+        window.put((byte) b);
+    }
+
+    @Override
+    public synchronized void write(@NonNull final byte[] buf, final int off, final int len) throws IOException {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        ensureOpen();
+        int from = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (!window.hasRemaining()) {
+                nextWindow();
+            }
+            final int count = Math.min(remaining, window.remaining());
+            window.put(buf, from, count);
+            from += count;
+            remaining -= count;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void nextWindow() throws IOException {
+        unforced.add(window);
+        windowStart += windowSize;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+    }
+
+    /**
+     * Forces all bytes written so far to the storage device.
+     *
+     * <p>Writers are not held up while the bytes are forced.</p>
+     */
+    public void force() {
+        synchronized (forceLock) {
+            final List<MappedByteBuffer> windows;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                windows = new ArrayList<>(unforced);
+                unforced.clear();
+                windows.add(window);
+            }
+            windows.forEach(MappedByteBuffer::force);
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            // the next attempt, or close, will report any persistent failure
+        }
+    }
+
+    /**
+     * The number of bytes in the file, excluding the unused part of the current window.
+     *
+     * @return the length of the file as it will be after closing
+     */
+    public synchronized long getLength() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Stops the background thread, forces all bytes written to the storage device, truncates the file to remove the
+     * unused part of the current window, and closes the file.
+     *
+     * @throws IOException if there is an error truncating or closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (forcer != null) {
+            forcer.shutdown();
+            try {
+                forcer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (forceLock) {
+            force();
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    channel.truncate(windowStart + window.position());
+                } finally {
+                    channel.close();
+                }
+            }
+        }
+    }
+}
@@ -31,12 +31,26 @@ import java.util.Optional;
  * Basic wrapper for {@link PrintStream} that simply passes all writes to the intercepted PrintStream, or to another
  * wrapper.
  *
+ * <p>If {@link Instrumentation} is on when the wrapper is created, the bytes written to the next stage and the time
+ * taken are recorded in its {@link StageMetrics}. Subclasses that override {@link #write(byte[], int, int)} record
+ * the bytes written to them with {@link #received(int)}, and those that drop or replace Strings record them with
+ * {@link #received(String)}.</p>
+ *
+ * <p>Once a {@link SingleLockPrintStreamWrapper} has taken over a chain, every call on a stage within it is made
+ * while holding that wrapper's lock. Stages whose own lock only guards state used by the writing thread skip it when
+ * {@link #hasOuterLock()} is true. Stages with state shared with another thread, such as a timer, keep taking their
+ * own lock.</p>
+ *
  * @author Paul Campbell (pcampbell@kemitix.net)
  */
 class PassthroughPrintStreamWrapper extends PrintStream implements PrintStreamWrapper {
 
     private final PrintStreamWrapper wrapper;
 
+    private final StageMetrics metrics;
+
+    private boolean outerLock;
+
     /**
      * Constructor to wrap a PrintStream.
      *
@@ -45,6 +59,7 @@ class PassthroughPrintStreamWrapper extends PrintStream implements PrintStreamWr
     PassthroughPrintStreamWrapper(final PrintStream original) {
         super(original);
         wrapper = wrap(original);
+        metrics = Instrumentation.register(this);
     }
 
     private PrintStreamWrapper wrap(final PrintStream original) {
@@ -59,7 +74,13 @@ class PassthroughPrintStreamWrapper extends PrintStream implements PrintStreamWr
      */
     @Override
     public void write(final int b) {
-        wrapper.write(b);
+        if (metrics == null) {
+            wrapper.write(b);
+        } else {
+            final long start = System.nanoTime();
+            wrapper.write(b);
+            metrics.wrote(b, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -75,7 +96,109 @@ class PassthroughPrintStreamWrapper extends PrintStream implements PrintStreamWr
             final int off,
             final int len
                      ) {
-        wrapper.write(buf, off, len);
+        if (metrics == null) {
+            wrapper.write(buf, off, len);
+        } else {
+            final long start = System.nanoTime();
+            wrapper.write(buf, off, len);
+            metrics.wrote(buf, off, len, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Marks this stage, and each stage after it, as only being called while holding the lock of a
+     * {@link SingleLockPrintStreamWrapper}.
+     *
+     * <p>This must be done before the chain is shared, and the chain must only be used through that wrapper from then
+     * on.</p>
+     */
+    final void useOuterLock() {
+        outerLock = true;
+        final PrintStream next = wrapper.getWrapperSubject();
+        if (next instanceof PassthroughPrintStreamWrapper) {
+            ((PassthroughPrintStreamWrapper) next).useOuterLock();
+        }
+    }
+
+    /**
+     * Whether every call on this stage is made while holding the lock of a {@link SingleLockPrintStreamWrapper}.
+     *
+     * @return true if the stage need not take its own lock
+     */
+    final boolean hasOuterLock() {
+        return outerLock;
+    }
+
+    /**
+     * Flushes the wrapped PrintStream, without taking the monitor of this stage if it {@link #hasOuterLock()}.
+     */
+    @Override
+    public void flush() {
+        if (outerLock) {
+            wrapper.getWrapperSubject().flush();
+        } else {
+            super.flush();
+        }
+    }
+
+    /**
+     * Record bytes written to this stage, if it is instrumented.
+     *
+     * @param count the number of bytes
+     */
+    final void received(final int count) {
+        if (metrics != null) {
+            metrics.received(count);
+        }
+    }
+
+    /**
+     * Record a String given to this stage that is not written on as it is through its write methods, if the stage is
+     * instrumented.
+     *
+     * @param s the String
+     */
+    final void received(final String s) {
+        if (metrics != null) {
+            metrics.received(s);
+        }
+    }
+
+    /**
+     * Print a String directly to the wrapped PrintStream or PrintStreamWrapper, rather than through the write methods
+     * of this stage.
+     *
+     * @param s the String
+     */
+    final void printToNext(final String s) {
+        final PrintStream next = wrapper.getWrapperSubject();
+        if (metrics == null) {
+            next.print(s);
+        } else {
+            final long start = System.nanoTime();
+            next.print(s);
+            metrics.wrote(s, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The metrics for this stage.
+     *
+     * @return the metrics, or empty if the stage is not instrumented
+     */
+    final Optional<StageMetrics> getMetrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    /**
+     * Closes the stream and, if it is instrumented, unregisters its metrics.
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (metrics != null) {
+            Instrumentation.unregister(metrics);
+        }
     }
 
     @Override
@@ -0,0 +1,409 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteFilter;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteTransform;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A single {@link PrintStream} that runs all the stages of a {@link PrintStreamPipeline} before writing to the core
+ * {@link PrintStream}.
+ *
+ * <p>String stages are applied, in order, to {@link #print(String)} and {@link #println(String)}. The byte-level
+ * stages are linked {@link Step}s that pass buffers directly to each other, under this stream's lock, with no
+ * intermediate {@link PrintStream}s. Each run of adjacent byte filters and transforms is fused into one
+ * {@link FusedByteStep} that makes a single pass over the buffer. String stages that follow a byte-level stage are
+ * applied to each line by a {@link LineStep}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ * @see PrintStreamPipeline
+ */
+class PipelinePrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    /**
+     * The result of a String stage that filters out the String.
+     *
+     * <p>It is compared by identity, so that a null String is passed on like any other.</p>
+     */
+    @SuppressWarnings("RedundantStringConstructorCall")
+    static final String FILTERED = new String("");
+
+    private final List<UnaryOperator<String>> stringStages;
+
+    private final Step head;
+
+    private final byte[] single = new byte[1];
+
+    /**
+     * Constructor to wrap an existing PrintStream.
+     *
+     * @param core         the PrintStream to wrap
+     * @param stringStages the String stages, each returning {@link #FILTERED} when the String is filtered out
+     * @param byteStages   the factories for the byte-level steps, in order, each given the step that follows it
+     */
+    PipelinePrintStreamWrapper(
+            final PrintStream core,
+            @NonNull final List<UnaryOperator<String>> stringStages,
+            @NonNull final List<Function<Step, Step>> byteStages
+                              ) {
+        super(core);
+        this.stringStages = stringStages;
+        Step step = super::write;
+        for (int i = byteStages.size() - 1; i >= 0; i--) {
+            step = byteStages.get(i).apply(step);
+        }
+        this.head = step;
+    }
+
+    @Override
+    public final void print(final String s) {
+        synchronized (this) {
+            final String result = applyStringStages(stringStages, s);
+            if (result != FILTERED) {
+                super.print(result);
+            } else {
+                received(s);
+            }
+        }
+    }
+
+    @Override
+    public final void println(final String s) {
+        synchronized (this) {
+            final String result = applyStringStages(stringStages, s);
+            if (result != FILTERED) {
+                super.print(result);
+                super.println();
+            } else {
+                received(s);
+                received(System.lineSeparator());
+            }
+        }
+    }
+
+    private static String applyStringStages(final List<UnaryOperator<String>> stages, final String s) {
+        String result = s;
+        for (final UnaryOperator<String> stage : stages) {
+            result = stage.apply(result);
+            if (result == FILTERED) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public final void write(final int b) {
+        received(1);
+        if (hasOuterLock()) {
+            single[0] = (byte) b;
+            head.write(single, 0, 1);
+        } else {
+            synchronized (this) {
+                single[0] = (byte) b;
+                head.write(single, 0, 1);
+            }
+        }
+    }
+
+    @Override
+    public final void write(@NonNull final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        if (hasOuterLock()) {
+            head.write(buf, off, len);
+        } else {
+            synchronized (this) {
+                head.write(buf, off, len);
+            }
+        }
+    }
+
+    /**
+     * Passes on any partial line held back by a {@link LineStep}, then closes the stream.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            head.finish();
+        }
+        super.close();
+    }
+
+    /**
+     * A byte-level stage within the pipeline.
+     */
+    @FunctionalInterface
+    interface Step {
+
+        /**
+         * Process the bytes and pass the result on to the next step.
+         *
+         * @param buf A byte array
+         * @param off Offset from which to start taking bytes
+         * @param len Number of bytes to write
+         */
+        void write(byte[] buf, int off, int len);
+
+        /**
+         * Pass on anything held back, as the stream is closing.
+         *
+         * <p>Does nothing unless overridden.</p>
+         */
+        default void finish() {
+        }
+    }
+
+    /**
+     * A run of adjacent byte filters and transforms applied in a single pass over each buffer.
+     */
+    static final class FusedByteStep implements Step {
+
+        private static final int SCRATCH_SIZE = 8192;
+
+        private static final int BYTE_MASK = 0xFF;
+
+        private static final int DROP = -1;
+
+        private final ByteOperation[] operations;
+
+        private final Step next;
+
+        private final ByteBufferSegment input = new ByteBufferSegment();
+
+        private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+        /**
+         * Constructor.
+         *
+         * @param operations the filters and transforms, in order
+         * @param next       the step to receive the result
+         */
+        FusedByteStep(final ByteOperation[] operations, final Step next) {
+            this.operations = operations;
+            this.next = next;
+        }
+
+        /**
+         * Create a byte operation from a filter.
+         *
+         * @param filter the filter
+         *
+         * @return the operation
+         */
+        static ByteOperation filter(final PrimitiveByteFilter filter) {
+            return b -> {
+                if (filter.test((byte) b)) {
+                    return b;
+                }
+                return DROP;
+            };
+        }
+
+        /**
+         * Create a byte operation from a transform.
+         *
+         * @param transformer the transform
+         *
+         * @return the operation
+         */
+        static ByteOperation transform(final PrimitiveByteTransform transformer) {
+            return b -> transformer.apply((byte) b) & BYTE_MASK;
+        }
+
+        @Override
+        public void write(final byte[] buf, final int off, final int len) {
+            input.reset(buf, off, len);
+            while (!input.isEmpty()) {
+                final int count = Math.min(input.length(), scratch.length);
+                final int passed = fuse(input.array(), input.offset(), count);
+                input.skip(count);
+                if (passed > 0) {
+                    next.write(scratch, 0, passed);
+                }
+            }
+        }
+
+        @Override
+        public void finish() {
+            next.finish();
+        }
+
+        private int fuse(final byte[] in, final int off, final int len) {
+            int count = 0;
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
+                int value = in[i] & BYTE_MASK;
+                for (int op = 0; (op < operations.length) && (value != DROP); op++) {
+                    value = operations[op].apply(value);
+                }
+                if (value != DROP) {
+                    scratch[count] = (byte) value;
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A single filter or transform of a byte, in the range 0-255, returning -1 if the byte is to be dropped.
+     */
+    @FunctionalInterface
+    interface ByteOperation {
+
+        /**
+         * Apply the operation.
+         *
+         * @param b the unsigned value of the byte
+         *
+         * @return the unsigned value of the result, or -1 to drop the byte
+         */
+        int apply(int b);
+    }
+
+    /**
+     * Copies all bytes to another PrintStream before passing them on to the next step.
+     */
+    static final class CopyStep implements Step {
+
+        private final PrintStream copyTo;
+
+        private final Step next;
+
+        /**
+         * Constructor.
+         *
+         * @param copyTo the PrintStream to copy to
+         * @param next   the step to receive the bytes
+         */
+        CopyStep(final PrintStream copyTo, final Step next) {
+            this.copyTo = copyTo;
+            this.next = next;
+        }
+
+        @Override
+        public void write(final byte[] buf, final int off, final int len) {
+            copyTo.write(buf, off, len);
+            next.write(buf, off, len);
+        }
+
+        @Override
+        public void finish() {
+            next.finish();
+        }
+    }
+
+    /**
+     * Applies String stages to each line of the bytes that reach it, before passing the result on to the next step.
+     *
+     * <p>Each line is decoded with the platform's default charset, which is the one the pipeline encodes with, and is
+     * given to the stages without its line ending. A line is not passed on until its line ending has been written, or
+     * the stream is closed.</p>
+     */
+    static final class LineStep implements Step {
+
+        private static final byte NEWLINE = '\n';
+
+        private static final byte CARRIAGE_RETURN = '\r';
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final List<UnaryOperator<String>> stages;
+
+        private final Step next;
+
+        private final Charset charset = Charset.defaultCharset();
+
+        private final LineBuffer lineBuffer = new LineBuffer();
+
+        private final LineBuffer.LineConsumer onLine = this::acceptLine;
+
+        private byte[] output = new byte[INITIAL_CAPACITY];
+
+        private int count;
+
+        /**
+         * Constructor.
+         *
+         * @param stages the String stages, each returning {@link #FILTERED} when the line is filtered out
+         * @param next   the step to receive the result
+         */
+        LineStep(final List<UnaryOperator<String>> stages, final Step next) {
+            this.stages = stages;
+            this.next = next;
+        }
+
+        @Override
+        public void write(final byte[] buf, final int off, final int len) {
+            lineBuffer.write(buf, off, len, onLine);
+            writeOutput();
+        }
+
+        private void acceptLine(final byte[] line, final int off, final int len) {
+            int contentLength = len;
+            if (contentLength > 0 && line[off + contentLength - 1] == NEWLINE) {
+                contentLength--;
+                if (contentLength > 0 && line[off + contentLength - 1] == CARRIAGE_RETURN) {
+                    contentLength--;
+                }
+            }
+            final String result = applyStringStages(stages, new String(line, off, contentLength, charset));
+            if (result != FILTERED) {
+                final byte[] encoded = String.valueOf(result).getBytes(charset);
+                append(encoded, 0, encoded.length);
+                append(line, off + contentLength, len - contentLength);
+            }
+        }
+
+        private void append(final byte[] bytes, final int off, final int len) {
+            if (count + len > output.length) {
+                output = Arrays.copyOf(output, Math.max(count + len, output.length * 2));
+            }
+            System.arraycopy(bytes, off, output, count, len);
+            count += len;
+        }
+
+        private void writeOutput() {
+            if (count > 0) {
+                final int length = count;
+                count = 0;
+                next.write(output, 0, length);
+            }
+        }
+
+        @Override
+        public void finish() {
+            lineBuffer.drain(onLine);
+            writeOutput();
+            next.finish();
+        }
+    }
+}
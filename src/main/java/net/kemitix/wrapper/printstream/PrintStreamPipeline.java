@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+import net.kemitix.wrapper.printstream.PipelinePrintStreamWrapper.ByteOperation;
+import net.kemitix.wrapper.printstream.PipelinePrintStreamWrapper.CopyStep;
+import net.kemitix.wrapper.printstream.PipelinePrintStreamWrapper.FusedByteStep;
+import net.kemitix.wrapper.printstream.PipelinePrintStreamWrapper.LineStep;
+import net.kemitix.wrapper.printstream.PipelinePrintStreamWrapper.Step;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteFilter;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.PrimitiveByteTransform;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.StringFilter;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.StringTransform;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Fluent builder for a single {@link PrintStream} that runs a series of stages in one loop.
+ *
+ * <p>Stages are listed in the order that writes pass through them, ending at the core {@link PrintStream}. The
+ * nested wrappers:</p>
+ *
+ * <pre>
+ * PrintStreamWrapper.transform(PrintStreamWrapper.copy(PrintStreamWrapper.filter(core, f), copy), t)
+ * </pre>
+ *
+ * <p>are built as:</p>
+ *
+ * <pre>
+ * PrintStreamWrapper.pipeline(core).transformString(t).copy(copy).filterString(f).build()
+ * </pre>
+ *
+ * <p>The resulting stream has one lock and one character encoder, whatever the number of stages. Adjacent byte
+ * filters and transforms are fused into a single pass over each buffer.</p>
+ *
+ * <p>String stages that come before any byte filter, byte transform or copy stage see
+ * {@link PrintStream#print(String)} and {@link PrintStream#println(String)}, as with nested wrappers. A String stage
+ * that follows one of those stages is applied to each line of the bytes that reach it, without its line ending. A
+ * line is held back until its line ending is written, or the stream is closed.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class PrintStreamPipeline {
+
+    private final PrintStream core;
+
+    private final List<UnaryOperator<String>> stringStages = new ArrayList<>();
+
+    private final List<Function<Step, Step>> byteStages = new ArrayList<>();
+
+    private final List<ByteOperation> pendingOperations = new ArrayList<>();
+
+    private final List<UnaryOperator<String>> pendingLineStages = new ArrayList<>();
+
+    private boolean bytesStarted;
+
+    /**
+     * Constructor.
+     *
+     * @param core the PrintStream to receive the output of the pipeline
+     */
+    PrintStreamPipeline(@NonNull final PrintStream core) {
+        this.core = core;
+    }
+
+    /**
+     * Add a String filter stage.
+     *
+     * @param filter the String filter
+     *
+     * @return this pipeline
+     */
+    public PrintStreamPipeline filterString(@NonNull final StringFilter filter) {
+        return addStringStage(s -> {
+            if (filter.test(s)) {
+                return s;
+            }
+            return PipelinePrintStreamWrapper.FILTERED;
+        });
+    }
+
+    /**
+     * Add a String transform stage.
+     *
+     * @param transformer the String transformer
+     *
+     * @return this pipeline
+     */
+    public PrintStreamPipeline transformString(@NonNull final StringTransform transformer) {
+        return addStringStage(transformer::apply);
+    }
+
+    private PrintStreamPipeline addStringStage(final UnaryOperator<String> stage) {
+        if (bytesStarted) {
+            fusePendingOperations();
+            pendingLineStages.add(stage);
+        } else {
+            stringStages.add(stage);
+        }
+        return this;
+    }
+
+    /**
+     * Add a byte filter stage.
+     *
+     * <p>A {@link PrintStreamWrapper.ByteFilter} can be added as {@code filter::test}.</p>
+     *
+     * @param filter the primitive byte filter
+     *
+     * @return this pipeline
+     */
+    public PrintStreamPipeline filter(@NonNull final PrimitiveByteFilter filter) {
+        bytesStarted = true;
+        fusePendingLineStages();
+        pendingOperations.add(FusedByteStep.filter(filter));
+        return this;
+    }
+
+    /**
+     * Add a byte transform stage.
+     *
+     * <p>A {@link PrintStreamWrapper.ByteTransform} can be added as {@code transformer::apply}.</p>
+     *
+     * @param transformer the primitive byte transformer
+     *
+     * @return this pipeline
+     */
+    public PrintStreamPipeline transform(@NonNull final PrimitiveByteTransform transformer) {
+        bytesStarted = true;
+        fusePendingLineStages();
+        pendingOperations.add(FusedByteStep.transform(transformer));
+        return this;
+    }
+
+    /**
+     * Add a stage that copies all bytes that reach it to another PrintStream.
+     *
+     * @param copyTo the PrintStream to copy to
+     *
+     * @return this pipeline
+     */
+    public PrintStreamPipeline copy(@NonNull final PrintStream copyTo) {
+        bytesStarted = true;
+        fusePendingLineStages();
+        fusePendingOperations();
+        byteStages.add(next -> new CopyStep(copyTo, next));
+        return this;
+    }
+
+    private void fusePendingOperations() {
+        if (!pendingOperations.isEmpty()) {
+            final ByteOperation[] operations = pendingOperations.toArray(new ByteOperation[0]);
+            byteStages.add(next -> new FusedByteStep(operations, next));
+            pendingOperations.clear();
+        }
+    }
+
+    private void fusePendingLineStages() {
+        if (!pendingLineStages.isEmpty()) {
+            final List<UnaryOperator<String>> stages = new ArrayList<>(pendingLineStages);
+            byteStages.add(next -> new LineStep(stages, next));
+            pendingLineStages.clear();
+        }
+    }
+
+    /**
+     * Create the PrintStream that runs the stages added so far.
+     *
+     * <p>The pipeline may continue to be used to build other PrintStreams.</p>
+     *
+     * @return the PrintStream
+     */
+    public PrintStream build() {
+        fusePendingOperations();
+        fusePendingLineStages();
+        return new PipelinePrintStreamWrapper(core, new ArrayList<>(stringStages), new ArrayList<>(byteStages));
+    }
+}
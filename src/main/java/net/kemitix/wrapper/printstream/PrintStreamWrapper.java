@@ -24,7 +24,14 @@ package net.kemitix.wrapper.printstream;
 import net.kemitix.wrapper.Wrapper;
 
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -66,6 +73,101 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
         return new ByteFilterPrintStreamWrapper(printStream, filter);
     }
 
+    /**
+     * Create a byte filtering PrintStream that will filter using the primitive predicate.
+     *
+     * <p>Unlike {@link #filter(PrintStream, ByteFilter)}, the bytes are not boxed.</p>
+     *
+     * @param printStream the PrintStream to receive filtered writes
+     * @param filter the primitive byte filter
+     *
+     * @return A byte filtering PrintStream
+     */
+    public static PrintStream filter(
+            final PrintStream printStream,
+            final PrimitiveByteFilter filter) {
+        return new ByteFilterPrintStreamWrapper(printStream, filter);
+    }
+
+    /**
+     * Creates a PrintStream that decodes everything written into lines and tests each line using the filter, only
+     * passing on to the original the lines that pass.
+     *
+     * <p>Each line is given to the filter as a view over the wrapper's own buffer, so no String is created unless the
+     * filter creates one.</p>
+     *
+     * @param printStream the PrintStream to receive the lines that pass
+     * @param filter the line filter
+     *
+     * @return A line filtering PrintStream
+     */
+    public static PrintStream filter(
+            final PrintStream printStream,
+            final LineFilter filter) {
+        Objects.requireNonNull(filter, "filter");
+        return new TextTransformPrintStreamWrapper(printStream, line -> {
+            if (filter.test(line)) {
+                return line;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Create a line filtering PrintStream that will test the raw bytes of each line.
+     *
+     * @param printStream the PrintStream to receive the lines that pass
+     * @param filter the byte line filter
+     *
+     * @return A line filtering PrintStream
+     */
+    public static PrintStream filter(
+            final PrintStream printStream,
+            final ByteLineFilter filter) {
+        return new LineFilterPrintStreamWrapper(printStream, filter);
+    }
+
+    /**
+     * Create a line filtering PrintStream that looks for any of a set of keywords, encoded using the default charset.
+     *
+     * @param printStream the PrintStream to receive the lines that pass
+     * @param keywords the keywords to look for
+     * @param mode whether to include or exclude the lines that contain a keyword
+     *
+     * @return A keyword filtering PrintStream
+     */
+    public static PrintStream filter(
+            final PrintStream printStream,
+            final Collection<String> keywords,
+            final KeywordMode mode) {
+        return filter(printStream, keywords, Charset.defaultCharset(), mode);
+    }
+
+    /**
+     * Create a line filtering PrintStream that looks for any of a set of keywords.
+     *
+     * <p>All the keywords are found in a single pass over each line, however many there are. Keywords are matched
+     * within a line, so should not contain a line ending.</p>
+     *
+     * @param printStream the PrintStream to receive the lines that pass
+     * @param keywords the keywords to look for, none of which may be empty
+     * @param charset the charset that the PrintStream encodes text with
+     * @param mode whether to include or exclude the lines that contain a keyword
+     *
+     * @return A keyword filtering PrintStream
+     */
+    public static PrintStream filter(
+            final PrintStream printStream,
+            final Collection<String> keywords,
+            final Charset charset,
+            final KeywordMode mode) {
+        Objects.requireNonNull(keywords, "keywords");
+        Objects.requireNonNull(charset, "charset");
+        final List<byte[]> encoded = new ArrayList<>(keywords.size());
+        keywords.forEach(keyword -> encoded.add(keyword.getBytes(charset)));
+        return new KeywordFilterPrintStreamWrapper(printStream, new KeywordAutomaton(encoded), mode);
+    }
+
     /**
      * Get the wrapped PrintStream, if one exists.
      *
@@ -98,6 +200,62 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
         return new CopyPrintStreamWrapper(left, right);
     }
 
+    /**
+     * Creates a PrintStream that copies all writes to the primary and to each of the other PrintStreams, in turn, on
+     * the caller's thread.
+     *
+     * @param primary the PrintStream to write to first
+     * @param others the PrintStreams to copy to
+     *
+     * @return A fan-out copying PrintStream
+     */
+    public static FanOutPrintStreamWrapper fanOut(
+            final PrintStream primary,
+            final PrintStream... others
+    ) {
+        return new FanOutPrintStreamWrapper(primary, null, others);
+    }
+
+    /**
+     * Creates a PrintStream that writes to the primary PrintStream and copies all writes to each of the other
+     * PrintStreams in parallel using the executor.
+     *
+     * <p>The caller only waits for the write to the primary PrintStream.</p>
+     *
+     * @param executor the Executor to write to the other PrintStreams
+     * @param primary the PrintStream to write to on the caller's thread
+     * @param others the PrintStreams to copy to
+     *
+     * @return A fan-out copying PrintStream
+     */
+    public static FanOutPrintStreamWrapper fanOut(
+            final Executor executor,
+            final PrintStream primary,
+            final PrintStream... others
+    ) {
+        return new FanOutPrintStreamWrapper(primary, Objects.requireNonNull(executor, "executor"), others);
+    }
+
+    /**
+     * Creates a PrintStream that writes to the core PrintStream and copies all writes to the copyTo PrintStream from a
+     * background thread.
+     *
+     * @param core the PrintStream to write to directly
+     * @param copyTo the PrintStream to copy to asynchronously
+     * @param capacity the number of bytes that can wait to be copied
+     * @param backpressure the policy for when there are already capacity bytes waiting
+     *
+     * @return An asynchronous copying PrintStream
+     */
+    public static AsyncCopyPrintStreamWrapper asyncCopy(
+            final PrintStream core,
+            final PrintStream copyTo,
+            final int capacity,
+            final AsyncCopyPrintStreamWrapper.Backpressure backpressure
+    ) {
+        return new AsyncCopyPrintStreamWrapper(core, copyTo, capacity, backpressure);
+    }
+
     /**
      * Creates a PrintStream that transforms calls the {@link PrintStream#print(String)} using the transformer before
      * passing it on to the original.
@@ -114,6 +272,47 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
         return new StringTransformPrintStreamWrapper(original, transformer);
     }
 
+    /**
+     * Creates a PrintStream that decodes everything written into lines and transforms each line using the transformer
+     * before passing it on to the original.
+     *
+     * <p>Unlike {@link #transform(PrintStream, StringTransform)}, every write is transformed, not only
+     * {@link PrintStream#print(String)}. Each line is given to the transformer without its line ending, and a line is
+     * dropped if the transformer returns null.</p>
+     *
+     * @param original the PrintStream to receive the transformed lines
+     * @param transformer the String transformer
+     *
+     * @return A line transforming PrintStream
+     */
+    public static PrintStream transformLines(
+            final PrintStream original,
+            final StringTransform transformer
+    ) {
+        Objects.requireNonNull(transformer, "transformer");
+        return new TextTransformPrintStreamWrapper(original, line -> transformer.apply(line.toString()));
+    }
+
+    /**
+     * Creates a PrintStream that decodes everything written into lines and transforms each line using the transformer
+     * before passing it on to the original.
+     *
+     * <p>Each line is given to the transformer as a view over the wrapper's own buffer, so no String is created unless
+     * the transformer creates one.</p>
+     *
+     * @param original the PrintStream to receive the transformed lines
+     * @param transformer the line transformer
+     *
+     * @return A line transforming PrintStream
+     */
+    public static PrintStream transform(
+            final PrintStream original,
+            final LineTransform transformer
+    ) {
+        Objects.requireNonNull(transformer, "transformer");
+        return new TextTransformPrintStreamWrapper(original, transformer::apply);
+    }
+
     /**
      * Creates a PrintStream that transforms calls the {@link PrintStream#print(String)} using the transformer before
      * passing it on to the original.
@@ -130,6 +329,226 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
         return new ByteTransformPrintStreamWrapper(original, transformer);
     }
 
+    /**
+     * Creates a PrintStream that transforms all bytes written using the primitive transformer before passing them on
+     * to the original.
+     *
+     * <p>Unlike {@link #transform(PrintStream, ByteTransform)}, the bytes are not boxed.</p>
+     *
+     * @param original the PrintStream to receive the transformed calls
+     * @param transformer the primitive byte transformer
+     *
+     * @return A byte transforming PrintStream
+     */
+    public static PrintStream transform(
+            final PrintStream original,
+            final PrimitiveByteTransform transformer
+    ) {
+        return new ByteTransformPrintStreamWrapper(original, transformer);
+    }
+
+    /**
+     * Create a compressing PrintStream that writes everything in the GZIP format to the target, pushing out all the
+     * input so far whenever it is flushed.
+     *
+     * @param target the PrintStream to receive the compressed bytes
+     * @param level the compression level, from 0 to 9, or -1 for the default
+     *
+     * @return A compressing PrintStream
+     */
+    public static PrintStream compress(
+            final PrintStream target,
+            final int level
+    ) {
+        return compress(target, level, SyncFlush.ON_FLUSH);
+    }
+
+    /**
+     * Create a compressing PrintStream that writes everything in the GZIP format to the target.
+     *
+     * <p>The compressed output is only complete once the PrintStream has been closed, but can be read up to the last
+     * sync flush.</p>
+     *
+     * @param target the PrintStream to receive the compressed bytes
+     * @param level the compression level, from 0 to 9, or -1 for the default
+     * @param syncFlush when to push out all the input so far
+     *
+     * @return A compressing PrintStream
+     */
+    public static PrintStream compress(
+            final PrintStream target,
+            final int level,
+            final SyncFlush syncFlush
+    ) {
+        return new CompressPrintStreamWrapper(target, level, syncFlush);
+    }
+
+    /**
+     * Create a rate limiting PrintStream that suppresses lines written faster than the limit allows.
+     *
+     * @param printStream the PrintStream to receive the lines that are allowed
+     * @param rateLimit the rate limit
+     *
+     * @return A rate limiting PrintStream
+     */
+    public static PrintStream rateLimit(
+            final PrintStream printStream,
+            final RateLimit rateLimit
+    ) {
+        return new RateLimitPrintStreamWrapper(printStream, rateLimit);
+    }
+
+    /**
+     * Create a PrintStream that collapses consecutive duplicate lines, writing each line once followed by the number of
+     * times it was repeated.
+     *
+     * @param printStream the PrintStream to receive the collapsed lines
+     *
+     * @return A PrintStream collapsing repeated lines
+     */
+    public static PrintStream collapseRepeats(final PrintStream printStream) {
+        return collapseRepeats(printStream, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create a PrintStream that collapses consecutive duplicate lines, writing each line once followed by the number of
+     * times it was repeated, at least once every timeout while the line is still being repeated.
+     *
+     * @param printStream the PrintStream to receive the collapsed lines
+     * @param timeout the longest time to hold back repeats before reporting them, or zero for no limit
+     * @param unit the unit of the timeout
+     *
+     * @return A PrintStream collapsing repeated lines
+     */
+    public static PrintStream collapseRepeats(
+            final PrintStream printStream,
+            final long timeout,
+            final TimeUnit unit
+    ) {
+        return new CollapseRepeatsPrintStreamWrapper(printStream, timeout, unit);
+    }
+
+    /**
+     * Create a PrintStream that collects writes in a buffer, writing them on when the buffer is full or the oldest byte
+     * has waited for the maximum delay.
+     *
+     * @param printStream the PrintStream to receive the buffered writes
+     * @param size the size of the buffer
+     * @param maxDelay the longest time a byte may wait in the buffer, or zero for no limit
+     * @param unit the unit of the maximum delay
+     *
+     * @return A coalescing PrintStream
+     */
+    public static PrintStream coalesce(
+            final PrintStream printStream,
+            final int size,
+            final long maxDelay,
+            final TimeUnit unit
+    ) {
+        return coalesce(printStream, size, maxDelay, unit, false);
+    }
+
+    /**
+     * Create a PrintStream that collects writes in a buffer, writing them on when the buffer is full, the oldest byte
+     * has waited for the maximum delay or, if requested, at the end of each line.
+     *
+     * @param printStream the PrintStream to receive the buffered writes
+     * @param size the size of the buffer
+     * @param maxDelay the longest time a byte may wait in the buffer, or zero for no limit
+     * @param unit the unit of the maximum delay
+     * @param onNewline whether to write on the buffer at the end of each line
+     *
+     * @return A coalescing PrintStream
+     */
+    public static PrintStream coalesce(
+            final PrintStream printStream,
+            final int size,
+            final long maxDelay,
+            final TimeUnit unit,
+            final boolean onNewline
+    ) {
+        return new CoalescingPrintStreamWrapper(printStream, size, maxDelay, unit, onNewline);
+    }
+
+    /**
+     * Creates a pipeline builder that fuses stages into a single PrintStream writing to the core.
+     *
+     * @param core the PrintStream to receive the output of the pipeline
+     *
+     * @return A PrintStream pipeline builder
+     */
+    public static PrintStreamPipeline pipeline(final PrintStream core) {
+        return new PrintStreamPipeline(core);
+    }
+
+    /**
+     * Creates a PrintStream that serialises all access to a chain of wrappers behind its own single lock.
+     *
+     * <p>Stages within the chain that only lock to guard their write path no longer take their own lock. Install the
+     * returned PrintStream, not the chain, e.g. with {@link System#setOut(PrintStream)}, and do not use the chain
+     * directly.</p>
+     *
+     * @param chain the outermost PrintStream of the chain
+     *
+     * @return A single lock PrintStream
+     */
+    public static PrintStream singleLock(final PrintStream chain) {
+        return new SingleLockPrintStreamWrapper(chain);
+    }
+
+    /**
+     * Creates a PrintStream where each thread assembles its own lines, which are written to the PrintStream by a
+     * single background thread.
+     *
+     * <p>Writers never wait for each other or for the PrintStream, and lines from different threads are never
+     * interleaved. A thread's partial line is not written until it is completed, or that thread flushes.</p>
+     *
+     * @param printStream the PrintStream to receive the lines
+     *
+     * @return A thread buffered PrintStream
+     */
+    public static PrintStream threadBuffered(final PrintStream printStream) {
+        return new ThreadBufferedPrintStreamWrapper(printStream);
+    }
+
+    /**
+     * Creates a PrintStream that sends writes to a PrintStream chosen by the current thread.
+     *
+     * <p>Threads with no PrintStream bound to them write to the PrintStream given here.</p>
+     *
+     * @param printStream the PrintStream for threads without a binding
+     *
+     * @return A routing PrintStream
+     */
+    public static RoutingPrintStreamWrapper routing(final PrintStream printStream) {
+        return new RoutingPrintStreamWrapper(printStream);
+    }
+
+    /**
+     * Creates a PrintStream that sends writes through a pipeline that can be replaced while it is in use.
+     *
+     * <p>Until the first swap, writes go straight to the core.</p>
+     *
+     * @param core the PrintStream that each pipeline writes to
+     *
+     * @return A swappable PrintStream
+     */
+    public static SwappablePrintStreamWrapper swappable(final PrintStream core) {
+        return new SwappablePrintStreamWrapper(core);
+    }
+
+    /**
+     * Installs a swappable PrintStream as {@link System#out}, wrapping the current {@link System#out}.
+     *
+     * <p>If {@link System#out} is already swappable then it is returned as it is, so the pipeline is only installed
+     * once and may then be swapped as often as needed.</p>
+     *
+     * @return the swappable PrintStream installed as {@link System#out}
+     */
+    public static SwappablePrintStreamWrapper installOnSystemOut() {
+        return SwappablePrintStreamWrapper.installOnSystemOut();
+    }
+
     /**
      * The content of the PrintStreamWrapper as a PrintStream.
      *
@@ -178,6 +597,45 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
             int len
     );
 
+    /**
+     * Whether a keyword filter passes the lines that contain a keyword, or those that don't.
+     */
+    public static enum KeywordMode {
+
+        /**
+         * Only pass the lines that contain a keyword.
+         */
+        INCLUDE,
+
+        /**
+         * Only pass the lines that do not contain a keyword.
+         */
+        EXCLUDE
+    }
+
+    /**
+     * When a compressing PrintStream pushes out all the input written so far, so that it can be decompressed.
+     *
+     * <p>Each sync flush ends the current compressed block, which costs a few bytes and some compression.</p>
+     */
+    public static enum SyncFlush {
+
+        /**
+         * Only when closed.
+         */
+        NEVER,
+
+        /**
+         * When flushed, or closed.
+         */
+        ON_FLUSH,
+
+        /**
+         * After each write that contains a line ending, when flushed, or closed.
+         */
+        ON_NEWLINE
+    }
+
     /**
      * A Function for filtering a String.
      */
@@ -205,4 +663,258 @@ public interface PrintStreamWrapper extends Wrapper<PrintStream> {
     @FunctionalInterface
     public static interface ByteTransform extends Function<Byte, Byte> {
     }
+
+    /**
+     * A Function for filtering a byte without boxing it.
+     */
+    @FunctionalInterface
+    public static interface PrimitiveByteFilter {
+
+        /**
+         * Tests the byte.
+         *
+         * @param b the byte to test
+         *
+         * @return true if the byte should be written
+         */
+        boolean test(byte b);
+
+        /**
+         * Copies the bytes that pass the filter to the start of the output array.
+         *
+         * <p>The input and output may be the same array when {@code off} is zero.</p>
+         *
+         * @param in  the bytes to filter
+         * @param off the offset of the first byte in the input
+         * @param len the number of bytes from the input to filter
+         * @param out the array to receive the bytes that pass, which must be able to hold {@code len} bytes
+         *
+         * @return the number of bytes copied into the output
+         */
+        default int filter(final byte[] in, final int off, final int len, final byte[] out) {
+            int count = 0;
+            for (int i = off; i < off + len; i++) {
+                final byte b = in[i];
+                if (test(b)) {
+                    out[count] = b;
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A Function for filtering a line using its raw encoded bytes.
+     */
+    @FunctionalInterface
+    public static interface ByteLineFilter {
+
+        /**
+         * Create a filter for lines that contain the text, encoded using the default charset.
+         *
+         * @param text the text to find
+         *
+         * @return the filter
+         */
+        public static ByteLineFilter contains(final String text) {
+            return contains(text, Charset.defaultCharset());
+        }
+
+        /**
+         * Create a filter for lines that contain the text.
+         *
+         * @param text the text to find
+         * @param charset the charset that the PrintStream encodes text with
+         *
+         * @return the filter
+         */
+        public static ByteLineFilter contains(final String text, final Charset charset) {
+            return new LiteralByteLineFilter(text.getBytes(charset), false);
+        }
+
+        /**
+         * Create a filter for lines that start with the text, encoded using the default charset.
+         *
+         * @param text the text to find
+         *
+         * @return the filter
+         */
+        public static ByteLineFilter startsWith(final String text) {
+            return startsWith(text, Charset.defaultCharset());
+        }
+
+        /**
+         * Create a filter for lines that start with the text.
+         *
+         * @param text the text to find
+         * @param charset the charset that the PrintStream encodes text with
+         *
+         * @return the filter
+         */
+        public static ByteLineFilter startsWith(final String text, final Charset charset) {
+            return new LiteralByteLineFilter(text.getBytes(charset), true);
+        }
+
+        /**
+         * Tests the line.
+         *
+         * <p>The bytes are only valid for the duration of the call.</p>
+         *
+         * @param line the array holding the line
+         * @param off the offset of the start of the line
+         * @param len the length of the line, including any line ending
+         *
+         * @return true if the line should be written
+         */
+        boolean test(byte[] line, int off, int len);
+
+        /**
+         * Create a filter that passes the lines that this filter rejects.
+         *
+         * @return the filter
+         */
+        default ByteLineFilter negate() {
+            return (line, off, len) -> !test(line, off, len);
+        }
+
+        /**
+         * Create a filter that passes the lines that pass either this filter or the other.
+         *
+         * @param other the other filter
+         *
+         * @return the filter
+         */
+        default ByteLineFilter or(final ByteLineFilter other) {
+            Objects.requireNonNull(other, "other");
+            return (line, off, len) -> test(line, off, len) || other.test(line, off, len);
+        }
+
+        /**
+         * Create a filter that passes the lines that pass both this filter and the other.
+         *
+         * @param other the other filter
+         *
+         * @return the filter
+         */
+        default ByteLineFilter and(final ByteLineFilter other) {
+            Objects.requireNonNull(other, "other");
+            return (line, off, len) -> test(line, off, len) && other.test(line, off, len);
+        }
+    }
+
+    /**
+     * A Function for filtering a line of text without it being copied into a String.
+     */
+    @FunctionalInterface
+    public static interface LineFilter {
+
+        /**
+         * Tests the line.
+         *
+         * <p>The line is a view over the wrapper's own buffer, and is only valid for the duration of the call. Use
+         * {@link CharSequence#toString()} to keep a copy.</p>
+         *
+         * @param line the line, without its line ending
+         *
+         * @return true if the line should be written
+         */
+        boolean test(CharSequence line);
+
+        /**
+         * Create a filter that passes the lines that this filter rejects.
+         *
+         * @return the filter
+         */
+        default LineFilter negate() {
+            return line -> !test(line);
+        }
+
+        /**
+         * Create a filter that passes the lines that pass either this filter or the other.
+         *
+         * @param other the other filter
+         *
+         * @return the filter
+         */
+        default LineFilter or(final LineFilter other) {
+            Objects.requireNonNull(other, "other");
+            return line -> test(line) || other.test(line);
+        }
+
+        /**
+         * Create a filter that passes the lines that pass both this filter and the other.
+         *
+         * @param other the other filter
+         *
+         * @return the filter
+         */
+        default LineFilter and(final LineFilter other) {
+            Objects.requireNonNull(other, "other");
+            return line -> test(line) && other.test(line);
+        }
+    }
+
+    /**
+     * A Function for transforming a line of text without it being copied into a String.
+     */
+    @FunctionalInterface
+    public static interface LineTransform {
+
+        /**
+         * Transforms the line.
+         *
+         * <p>The line is a view over the wrapper's own buffer, and is only valid for the duration of the call. It may
+         * be returned as it is, or as a {@link CharSequence#subSequence(int, int)}, without being copied.</p>
+         *
+         * @param line the line, without its line ending
+         *
+         * @return the line to write, or null to drop the line
+         */
+        CharSequence apply(CharSequence line);
+    }
+
+    /**
+     * A Function for transforming one byte into another without boxing it.
+     */
+    @FunctionalInterface
+    public static interface PrimitiveByteTransform {
+
+        /**
+         * Transforms the byte.
+         *
+         * @param b the byte to transform
+         *
+         * @return the transformed byte
+         */
+        byte apply(byte b);
+
+        /**
+         * Transforms the bytes into the start of the output array.
+         *
+         * <p>The input and output may be the same array when {@code off} is zero.</p>
+         *
+         * @param in  the bytes to transform
+         * @param off the offset of the first byte in the input
+         * @param len the number of bytes from the input to transform
+         * @param out the array to receive the transformed bytes, which must be able to hold {@code len} bytes
+         */
+        default void transform(final byte[] in, final int off, final int len, final byte[] out) {
+            for (int i = 0; i < len; i++) {
+                out[i] = apply(in[off + i]);
+            }
+        }
+
+        /**
+         * Precomputes the output for every possible byte into a 256-entry lookup table.
+         *
+         * <p>The transform is applied to each possible byte once, now. It must always give the same output for the
+         * same input.</p>
+         *
+         * @return a transform that looks up each byte in the table
+         */
+        default PrimitiveByteTransform compile() {
+            return new ByteTransformTable(this);
+        }
+    }
 }
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The settings for a rate limiting PrintStream.
+ *
+ * <p>Create with {@link #linesPerSecond(long, long)} or {@link #bytesPerSecond(long, long)}, then optionally add
+ * sampling and summaries:</p>
+ *
+ * <pre>
+ * RateLimit.linesPerSecond(100, 1000).sampling(1000).summarisingEvery(10, TimeUnit.SECONDS)
+ * </pre>
+ *
+ * <p>RateLimits are immutable.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class RateLimit {
+
+    private final boolean perByte;
+
+    private final long rate;
+
+    private final long burst;
+
+    private final int sampleOneIn;
+
+    private final long summaryNanos;
+
+    private RateLimit(
+            final boolean perByte,
+            final long rate,
+            final long burst,
+            final int sampleOneIn,
+            final long summaryNanos
+                     ) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive: " + burst);
+        }
+        this.perByte = perByte;
+        this.rate = rate;
+        this.burst = burst;
+        this.sampleOneIn = sampleOneIn;
+        this.summaryNanos = summaryNanos;
+    }
+
+    /**
+     * A limit on the number of lines.
+     *
+     * @param rate  the number of lines allowed each second, on average
+     * @param burst the number of lines that may be written at once after a quiet period
+     *
+     * @return the rate limit
+     */
+    public static RateLimit linesPerSecond(final long rate, final long burst) {
+        return new RateLimit(false, rate, burst, 0, 0);
+    }
+
+    /**
+     * A limit on the number of bytes, with each line allowed or suppressed as a whole.
+     *
+     * @param rate  the number of bytes allowed each second, on average
+     * @param burst the number of bytes that may be written at once after a quiet period
+     *
+     * @return the rate limit
+     */
+    public static RateLimit bytesPerSecond(final long rate, final long burst) {
+        return new RateLimit(true, rate, burst, 0, 0);
+    }
+
+    /**
+     * Once the limit has been reached, still write one in every so many lines.
+     *
+     * @param oneIn the interval between sampled lines, or zero to suppress every line over the limit
+     *
+     * @return a copy of this rate limit with sampling
+     */
+    public RateLimit sampling(final int oneIn) {
+        if (oneIn < 0) {
+            throw new IllegalArgumentException("oneIn must not be negative: " + oneIn);
+        }
+        return new RateLimit(perByte, rate, burst, oneIn, summaryNanos);
+    }
+
+    /**
+     * Periodically write a line saying how many lines have been suppressed since the last summary.
+     *
+     * <p>Once each interval has passed, the summary is written by the next write that starts a line, or by the next
+     * flush.</p>
+     *
+     * @param interval the time between summaries, or zero to only summarise when closed
+     * @param unit     the unit of the interval
+     *
+     * @return a copy of this rate limit with summaries
+     */
+    public RateLimit summarisingEvery(final long interval, @NonNull final TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval must not be negative: " + interval);
+        }
+        return new RateLimit(perByte, rate, burst, sampleOneIn, unit.toNanos(interval));
+    }
+
+    /**
+     * Create the token bucket for this rate limit.
+     *
+     * @return a new, full, token bucket
+     */
+    TokenBucket bucket() {
+        return new TokenBucket(rate, burst, System::nanoTime);
+    }
+
+    /**
+     * Whether the limit is on bytes rather than lines.
+     *
+     * @return true if limiting bytes
+     */
+    boolean isPerByte() {
+        return perByte;
+    }
+
+    /**
+     * The interval between sampled lines.
+     *
+     * @return the interval, or zero for no sampling
+     */
+    int getSampleOneIn() {
+        return sampleOneIn;
+    }
+
+    /**
+     * The time between summaries.
+     *
+     * @return the time in nanoseconds, or zero for no periodic summaries
+     */
+    long getSummaryNanos() {
+        return summaryNanos;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wrapper for {@link PrintStream} that suppresses lines once they are written faster than a {@link RateLimit} allows,
+ * before writing to any inner wrapper or, if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>Each line is allowed or suppressed as a whole, when its first byte is written. The decision takes tokens from a
+ * lock-free {@link TokenBucket}, so writers do not wait for each other here. Once over the limit, one in every so many
+ * lines may still be written as a sample. Only the writes passed on, and the summaries, are made under this stage's
+ * monitor.</p>
+ *
+ * <p>A summary of the number of lines suppressed can be made periodically. The shared background timer only marks
+ * the summary as due, and it is written by the next write that starts a line, or by {@link #flush()} when not part
+ * way through a line. A summary is always written when closed. The timer holds this stage only weakly, so a stage
+ * that is dropped without being closed can still be garbage collected.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class RateLimitPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final byte NEWLINE = '\n';
+
+    private static final String SUMMARY = "[rate limited] suppressed %d lines%n";
+
+    private final TokenBucket bucket;
+
+    private final boolean perByte;
+
+    private final int sampleOneIn;
+
+    private final AtomicLong overLimit = new AtomicLong();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private final ScheduledFuture<?> summaries;
+
+    private volatile boolean midLine;
+
+    private volatile boolean lineAllowed = true;
+
+    private volatile boolean summaryDue;
+
+    /**
+     * Constructor to wrap an existing PrintStream.
+     *
+     * @param original  the PrintStream to wrap
+     * @param rateLimit the rate limit
+     */
+    RateLimitPrintStreamWrapper(final PrintStream original, @NonNull final RateLimit rateLimit) {
+        super(original);
+        this.bucket = rateLimit.bucket();
+        this.perByte = rateLimit.isPerByte();
+        this.sampleOneIn = rateLimit.getSampleOneIn();
+        final long summaryNanos = rateLimit.getSummaryNanos();
+        if (summaryNanos > 0) {
+            summaries = DaemonScheduler.scheduleWeakly(
+                    this, RateLimitPrintStreamWrapper::markSummaryDue, summaryNanos, TimeUnit.NANOSECONDS);
+        } else {
+            summaries = null;
+        }
+    }
+
+    @Override
+    public void write(final int b) {
+        received(1);
+        if (summaryDue && !midLine) {
+            writeDueSummary();
+        }
+        if (allow(1, b == NEWLINE)) {
+            synchronized (this) {
+                super.write(b);
+            }
+        }
+    }
+
+    @Override
+    public void write(final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        final int end = off + len;
+        int runStart = off;
+        int start = off;
+        while (start < end) {
+            if (summaryDue && !midLine) {
+                pass(buf, runStart, start);
+                runStart = start;
+                writeDueSummary();
+            }
+            int lineEnd = start;
+            while (lineEnd < end && buf[lineEnd] != NEWLINE) {
+                lineEnd++;
+            }
+            final boolean endsLine = lineEnd < end;
+            if (endsLine) {
+                lineEnd++;
+            }
+            if (!allow(lineEnd - start, endsLine)) {
+                pass(buf, runStart, start);
+                runStart = lineEnd;
+            }
+            start = lineEnd;
+        }
+        pass(buf, runStart, end);
+    }
+
+    private void pass(final byte[] buf, final int from, final int to) {
+        if (to > from) {
+            synchronized (this) {
+                super.write(buf, from, to - from);
+            }
+        }
+    }
+
+    /**
+     * Decide whether to write part of a line.
+     *
+     * @param length   the number of bytes in the part
+     * @param endsLine whether the part ends the line
+     *
+     * @return true if the part should be written
+     */
+    private boolean allow(final int length, final boolean endsLine) {
+        final boolean allowed;
+        if (midLine) {
+            allowed = lineAllowed;
+            if (allowed && perByte) {
+                bucket.take(length);
+            }
+        } else {
+            allowed = allowNewLine(length);
+            lineAllowed = allowed;
+        }
+        midLine = !endsLine;
+        return allowed;
+    }
+
+    private boolean allowNewLine(final int length) {
+        final long tokens;
+        if (perByte) {
+            tokens = length;
+        } else {
+            tokens = 1;
+        }
+        if (bucket.tryTake(tokens)) {
+            return true;
+        }
+        if (sampleOneIn > 0 && overLimit.incrementAndGet() % sampleOneIn == 0) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    private void markSummaryDue() {
+        if (suppressed.get() > 0) {
+            summaryDue = true;
+        }
+    }
+
+    private void writeDueSummary() {
+        synchronized (this) {
+            if (summaryDue) {
+                summaryDue = false;
+                writeSummary();
+            }
+        }
+    }
+
+    private void writeSummary() {
+        final long count = suppressed.getAndSet(0);
+        if (count > 0) {
+            final byte[] summary = String.format(SUMMARY, count).getBytes(Charset.defaultCharset());
+            super.write(summary, 0, summary.length);
+        }
+    }
+
+    /**
+     * Writes any summary that is due, unless part way through a line, then flushes the stream.
+     */
+    @Override
+    public void flush() {
+        if (summaryDue && !midLine) {
+            writeDueSummary();
+        }
+        super.flush();
+    }
+
+    /**
+     * Writes a summary of any lines suppressed since the last one, then closes the stream.
+     */
+    @Override
+    public void close() {
+        if (summaries != null) {
+            summaries.cancel(false);
+        }
+        synchronized (this) {
+            summaryDue = false;
+            writeSummary();
+        }
+        super.close();
+    }
+}
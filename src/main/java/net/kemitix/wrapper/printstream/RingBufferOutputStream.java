@@ -0,0 +1,171 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An {@link OutputStream} that keeps only the most recent bytes written to it, in a fixed-size direct
+ * {@link ByteBuffer} ring.
+ *
+ * <p>Memory use is fixed when it is created, off the heap, and writes do not allocate. Once full, each write
+ * overwrites the oldest bytes. Intended as a copy target for crash diagnostics:</p>
+ *
+ * <pre>
+ * final RingBufferOutputStream recent = new RingBufferOutputStream(8 * 1024 * 1024);
+ * System.setOut(PrintStreamWrapper.copy(System.out, new PrintStream(recent)));
+ * </pre>
+ *
+ * <p>{@link #snapshot()} copies the ring out a chunk at a time, so writers are only held up for the time it takes to
+ * copy one chunk. If writers overwrite bytes before they can be copied, the snapshot starts after them. Closing the
+ * stream does not discard its contents.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class RingBufferOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ByteBuffer ring;
+
+    private final int capacity;
+
+    private long position;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the number of most recent bytes to keep
+     */
+    public RingBufferOutputStream(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ring = ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public synchronized void write(final int b) {
+        ring.put(index(position), (byte) b);
+        position++;
+    }
+
+    @Override
+    public synchronized void write(@NonNull final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        int from = off;
+        int remaining = len;
+        if (remaining > capacity) {
+            position += remaining - capacity;
+            from += remaining - capacity;
+            remaining = capacity;
+        }
+        while (remaining > 0) {
+            final int at = index(position);
+            final int count = Math.min(remaining, capacity - at);
+            ring.position(at);
+            ring.put(buf, from, count);
+            position += count;
+            from += count;
+            remaining -= count;
+        }
+    }
+
+    private int index(final long offset) {
+        return (int) (offset % capacity);
+    }
+
+    /**
+     * Copies the most recent bytes out of the ring.
+     *
+     * @return the bytes, oldest first
+     */
+    public byte[] snapshot() {
+        final long end;
+        synchronized (this) {
+            end = position;
+        }
+        final long base = Math.max(0, end - capacity);
+        final byte[] copy = new byte[(int) (end - base)];
+        long start = base;
+        long next = start;
+        while (next < end) {
+            synchronized (this) {
+                final long oldest = position - capacity;
+                if (oldest > next) {
+                    start = oldest;
+                    next = oldest;
+                }
+                if (next >= end) {
+                    break;
+                }
+                final int at = index(next);
+                final int count = (int) Math.min(Math.min(end - next, CHUNK_SIZE), capacity - at);
+                ring.position(at);
+                ring.get(copy, (int) (next - base), count);
+                next += count;
+            }
+        }
+        final int from = (int) (start - base);
+        if (from == 0) {
+            return copy;
+        }
+        return Arrays.copyOfRange(copy, from, copy.length);
+    }
+
+    /**
+     * Writes a snapshot of the most recent bytes to the file, replacing it if it exists.
+     *
+     * @param path the file to write
+     *
+     * @throws IOException if there is an error writing the file
+     */
+    public void dumpTo(@NonNull final Path path) throws IOException {
+        Files.write(path, snapshot());
+    }
+
+    /**
+     * The number of bytes that can be kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The total number of bytes ever written, including those that have been overwritten.
+     *
+     * @return the number of bytes written
+     */
+    public synchronized long getTotalBytes() {
+        return position;
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link OutputStream} that appends to a file, rolling over to a new file by size or by age.
+ *
+ * <p>The current file is always at the given path. Rolled files are numbered in order, {@code app.log.1},
+ * {@code app.log.2}, and so on, with the highest number being the most recent.</p>
+ *
+ * <p>The next file is opened in advance under a hidden name. A rollover only switches writers to it, without waiting
+ * for any file to be renamed or closed. A background thread then closes the old file, renames both files, opens the
+ * next file in advance, compresses the rolled file with gzip, if enabled, and deletes the oldest rolled files beyond
+ * the number to keep.</p>
+ *
+ * <p>The age of the current file is only checked when it is written to. Renaming an open file relies on the platform
+ * allowing it, as Linux and macOS do.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class RotatingFileOutputStream extends OutputStream {
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final Path path;
+
+    private final long maxBytes;
+
+    private final long maxAgeNanos;
+
+    private final int keep;
+
+    private final boolean compress;
+
+    private final Pattern rolledName;
+
+    private final ExecutorService housekeeper;
+
+    private OutputStream active;
+
+    private long activeBytes;
+
+    private long activeOpened;
+
+    private long activeSequence;
+
+    private OutputStream next;
+
+    private boolean closed;
+
+    private volatile IOException housekeepingFailure;
+
+    /**
+     * Constructor.
+     *
+     * @param path     the file to write to
+     * @param maxBytes roll over before the file would exceed this many bytes, or zero to not roll over by size
+     * @param maxAge   roll over once the file is this old, or zero to not roll over by age
+     * @param unit     the unit of the maximum age
+     * @param keep     the number of rolled files to keep
+     * @param compress true to compress rolled files with gzip
+     *
+     * @throws IOException if the file can't be opened
+     */
+    public RotatingFileOutputStream(
+            @NonNull final Path path,
+            final long maxBytes,
+            final long maxAge,
+            @NonNull final TimeUnit unit,
+            final int keep,
+            final boolean compress
+                                   ) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        if (maxAge < 0) {
+            throw new IllegalArgumentException("maxAge must not be negative: " + maxAge);
+        }
+        if (keep < 0) {
+            throw new IllegalArgumentException("keep must not be negative: " + keep);
+        }
+        this.path = path.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.maxAgeNanos = unit.toNanos(maxAge);
+        this.keep = keep;
+        this.compress = compress;
+        this.rolledName = Pattern.compile(Pattern.quote(this.path.getFileName().toString())
+                                          + "\\.(\\d+)(" + Pattern.quote(GZIP_SUFFIX) + ")?");
+        this.housekeeper = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "rotating-file-output-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.activeSequence = lastRolledSequence() + 1;
+        this.active = new FileOutputStream(this.path.toFile(), true);
+        this.activeBytes = Files.size(this.path);
+        this.activeOpened = System.nanoTime();
+        housekeeper.execute(this::prepareNextQuietly);
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        beforeWrite(1);
+        active.write(b);
+        activeBytes++;
+    }
+
+    @Override
+    public synchronized void write(@NonNull final byte[] buf, final int off, final int len) throws IOException {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        beforeWrite(len);
+        active.write(buf, off, len);
+        activeBytes += len;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            active.flush();
+        }
+    }
+
+    private void beforeWrite(final int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (isDue(len)) {
+            rollOver();
+        }
+    }
+
+    private boolean isDue(final int len) {
+        if (activeBytes == 0) {
+            return false;
+        }
+        return (maxBytes > 0 && activeBytes + len > maxBytes)
+                || (maxAgeNanos > 0 && System.nanoTime() - activeOpened >= maxAgeNanos);
+    }
+
+    private void rollOver() throws IOException {
+        if (next == null) {
+            prepareNext();
+        }
+        final OutputStream rolled = active;
+        final long rolledSequence = activeSequence;
+        active = next;
+        next = null;
+        activeSequence++;
+        activeBytes = 0;
+        activeOpened = System.nanoTime();
+        housekeeper.execute(() -> housekeep(rolled, rolledSequence));
+    }
+
+    private void prepareNext() throws IOException {
+        next = new FileOutputStream(hidden(activeSequence + 1).toFile(), true);
+    }
+
+    /**
+     * Opens the next file without holding up writers, unless a writer has already had to open it.
+     */
+    private void prepareNextInBackground() throws IOException {
+        final long sequence;
+        synchronized (this) {
+            if (next != null || closed) {
+                return;
+            }
+            sequence = activeSequence + 1;
+        }
+        final OutputStream opened = new FileOutputStream(hidden(sequence).toFile(), true);
+        synchronized (this) {
+            if (next == null && !closed && sequence == activeSequence + 1) {
+                next = opened;
+                return;
+            }
+        }
+        opened.close();
+    }
+
+    private void prepareNextQuietly() {
+        try {
+            prepareNextInBackground();
+        } catch (IOException e) {
+            housekeepingFailure = e;
+        }
+    }
+
+    private void housekeep(final OutputStream rolled, final long sequence) {
+        try {
+            rolled.close();
+            final Path rolledPath = rolled(sequence);
+            Files.move(path, rolledPath, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(hidden(sequence + 1), path, StandardCopyOption.ATOMIC_MOVE);
+            prepareNextInBackground();
+            if (compress) {
+                compress(rolledPath);
+            }
+            prune();
+        } catch (IOException e) {
+            housekeepingFailure = e;
+        }
+    }
+
+    private Path hidden(final long sequence) {
+        return path.resolveSibling("." + path.getFileName() + "." + sequence);
+    }
+
+    private Path rolled(final long sequence) {
+        return path.resolveSibling(path.getFileName() + "." + sequence);
+    }
+
+    private static void compress(final Path rolledPath) throws IOException {
+        final Path compressed = rolledPath.resolveSibling(rolledPath.getFileName() + GZIP_SUFFIX);
+        try (InputStream in = Files.newInputStream(rolledPath);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), COPY_BUFFER_SIZE)) {
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+        }
+        Files.delete(rolledPath);
+    }
+
+    private void prune() throws IOException {
+        final List<Path> rolledFiles = rolledFiles();
+        rolledFiles.sort(Comparator.comparingLong(this::sequenceOf).reversed());
+        for (int i = keep; i < rolledFiles.size(); i++) {
+            Files.deleteIfExists(rolledFiles.get(i));
+        }
+    }
+
+    private long lastRolledSequence() throws IOException {
+        long last = 0;
+        for (final Path rolledFile : rolledFiles()) {
+            last = Math.max(last, sequenceOf(rolledFile));
+        }
+        return last;
+    }
+
+    private List<Path> rolledFiles() throws IOException {
+        final List<Path> rolledFiles = new ArrayList<>();
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(path.getParent())) {
+            for (final Path sibling : siblings) {
+                if (rolledName.matcher(sibling.getFileName().toString()).matches()) {
+                    rolledFiles.add(sibling);
+                }
+            }
+        }
+        return rolledFiles;
+    }
+
+    private long sequenceOf(final Path rolledFile) {
+        final Matcher matcher = rolledName.matcher(rolledFile.getFileName().toString());
+        if (matcher.matches()) {
+            return Long.parseLong(matcher.group(1));
+        }
+        return 0;
+    }
+
+    /**
+     * The last error from renaming, compressing or pruning files in the background, if there has been one.
+     *
+     * @return an Optional containing the error, or empty if there has been none
+     */
+    public Optional<IOException> getHousekeepingFailure() {
+        return Optional.ofNullable(housekeepingFailure);
+    }
+
+    /**
+     * Closes the current file, waits for the background thread to finish with any rolled files, and removes the file
+     * opened in advance.
+     *
+     * @throws IOException if there is an error closing the files
+     */
+    @Override
+    public void close() throws IOException {
+        final OutputStream unused;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.close();
+            unused = next;
+            next = null;
+        }
+        housekeeper.shutdown();
+        try {
+            housekeeper.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (unused != null) {
+            unused.close();
+        }
+        Files.deleteIfExists(hidden(activeSequence + 1));
+    }
+}
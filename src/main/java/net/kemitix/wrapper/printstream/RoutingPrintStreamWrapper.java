@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Wrapper for {@link PrintStream} that sends all writes to a PrintStream bound to the current thread, or, if there
+ * isn't one, to any inner wrapper or the core {@link PrintStream}.
+ *
+ * <p>A sink is bound with {@link #bind(PrintStream)} and unbound by closing the returned {@link Binding}. Bindings
+ * are held in an {@link InheritableThreadLocal}, so threads, including virtual threads, inherit the binding of the
+ * thread that created them. Tasks run by an executor's existing threads can carry the binding of the submitting
+ * thread with {@link #wrap(Runnable)} or {@link #wrap(Callable)}. N.B. a pool thread that is started while a binding
+ * is in place will inherit it, so pool threads should be started before binding, or tasks should always be wrapped.</p>
+ *
+ * <p>Routing takes no lock of its own. Each call is passed, unchanged, to the chosen PrintStream.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class RoutingPrintStreamWrapper extends ForwardingPrintStreamWrapper {
+
+    private final PrintStream original;
+
+    private final ThreadLocal<PrintStream> sink = new InheritableThreadLocal<>();
+
+    /**
+     * Constructor to wrap a PrintStream.
+     *
+     * @param original the PrintStream for threads without a binding
+     */
+    RoutingPrintStreamWrapper(final PrintStream original) {
+        super(original);
+        this.original = original;
+    }
+
+    @Override
+    protected PrintStream target() {
+        final PrintStream bound = sink.get();
+        if (bound == null) {
+            return original;
+        }
+        return bound;
+    }
+
+    /**
+     * Sends the writes of the current thread, and of threads it creates, to the sink until the binding is closed.
+     *
+     * <p>Bindings may be nested. Closing a binding restores the one it replaced, and must be done on the same thread,
+     * ideally with try-with-resources.</p>
+     *
+     * @param printStream the sink for the current thread
+     *
+     * @return the binding
+     */
+    public Binding bind(@NonNull final PrintStream printStream) {
+        final Binding binding = new Binding(sink.get());
+        sink.set(printStream);
+        return binding;
+    }
+
+    /**
+     * The sink bound to the current thread.
+     *
+     * @return an Optional containing the sink, or empty if the current thread is not bound
+     */
+    public Optional<PrintStream> getBoundSink() {
+        return Optional.ofNullable(sink.get());
+    }
+
+    /**
+     * Wraps the task so that it runs with the binding of the current thread, whichever thread runs it.
+     *
+     * @param task the task to wrap
+     *
+     * @return the wrapped task
+     */
+    public Runnable wrap(@NonNull final Runnable task) {
+        final PrintStream captured = sink.get();
+        return () -> {
+            final PrintStream previous = sink.get();
+            setSink(captured);
+            try {
+                task.run();
+            } finally {
+                setSink(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps the task so that it runs with the binding of the current thread, whichever thread runs it.
+     *
+     * @param task the task to wrap
+     * @param <T>  the type of the result of the task
+     *
+     * @return the wrapped task
+     */
+    public <T> Callable<T> wrap(@NonNull final Callable<T> task) {
+        final PrintStream captured = sink.get();
+        return () -> {
+            final PrintStream previous = sink.get();
+            setSink(captured);
+            try {
+                return task.call();
+            } finally {
+                setSink(previous);
+            }
+        };
+    }
+
+    private void setSink(final PrintStream printStream) {
+        if (printStream == null) {
+            sink.remove();
+        } else {
+            sink.set(printStream);
+        }
+    }
+
+    /**
+     * Flushes the PrintStream for the current thread and the wrapped PrintStream.
+     */
+    @Override
+    public void flush() {
+        final PrintStream target = target();
+        if (target != original) {
+            target.flush();
+        }
+        original.flush();
+    }
+
+    /**
+     * A sink bound to a thread, which is unbound when closed.
+     */
+    public final class Binding implements AutoCloseable {
+
+        private final PrintStream previous;
+
+        private Binding(final PrintStream previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Restores the binding that this one replaced, if any.
+         */
+        @Override
+        public void close() {
+            setSink(previous);
+        }
+    }
+}
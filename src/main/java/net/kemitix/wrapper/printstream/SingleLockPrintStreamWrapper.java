@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.io.PrintStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wrapper for {@link PrintStream} that serialises all access to a chain of wrappers behind a single lock.
+ *
+ * <p>Every call takes the lock of this wrapper and then passes the call, unchanged, to the outermost
+ * {@link PrintStream} of the chain. Each call, including each {@code println} and {@code printf}, is written to the
+ * chain as a whole before any other thread may write.</p>
+ *
+ * <p>The stages of the chain are told that they are behind this lock, and those whose own lock only guards their
+ * write path, such as the byte filters and transforms, line filters and pipelines, no longer take it. The monitors of
+ * the PrintStreams within the chain are not taken to flush them.</p>
+ *
+ * <p>The lock is not the monitor of this wrapper, so synchronising on it does not make several calls atomic.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class SingleLockPrintStreamWrapper extends ForwardingPrintStreamWrapper {
+
+    private final PrintStream chain;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor to wrap a chain of PrintStreams.
+     *
+     * <p>The chain must only be used through this wrapper from then on.</p>
+     *
+     * @param chain the outermost PrintStream of the chain
+     */
+    SingleLockPrintStreamWrapper(final PrintStream chain) {
+        super(chain);
+        this.chain = chain;
+        if (chain instanceof PassthroughPrintStreamWrapper) {
+            ((PassthroughPrintStreamWrapper) chain).useOuterLock();
+        }
+    }
+
+    @Override
+    protected PrintStream target() {
+        lock.lock();
+        return chain;
+    }
+
+    @Override
+    protected void release(final PrintStream target) {
+        lock.unlock();
+    }
+
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            chain.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            chain.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean checkError() {
+        lock.lock();
+        try {
+            return chain.checkError();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics for one instrumented stage of a chain of wrappers.
+ *
+ * <p>All counters are striped, so that recording from many threads at once does not contend. Reading a value sums
+ * the stripes, and is not an atomic snapshot of the stage.</p>
+ *
+ * <p>A stage that does not override {@link PassthroughPrintStreamWrapper#write(byte[], int, int)}, such as a String
+ * filter, receives the bytes that it writes on through its write methods. Strings that such a stage drops, or
+ * replaces, are counted as received in the default charset before it does so.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ * @see Instrumentation
+ */
+public final class StageMetrics implements StageMetricsMBean {
+
+    private static final int HISTOGRAM_SIZE = Long.SIZE;
+
+    private static final byte NEWLINE = '\n';
+
+    private final String name;
+
+    private final boolean receivedOnWrite;
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final LongAdder lines = new LongAdder();
+
+    private final LongAdder writes = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder[] histogram = new LongAdder[HISTOGRAM_SIZE];
+
+    /**
+     * Constructor.
+     *
+     * @param name            the name of the stage
+     * @param receivedOnWrite whether the bytes the stage writes on through its write methods were received as they are
+     */
+    StageMetrics(final String name, final boolean receivedOnWrite) {
+        this.name = name;
+        this.receivedOnWrite = receivedOnWrite;
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record bytes written to the stage.
+     *
+     * @param count the number of bytes
+     */
+    void received(final int count) {
+        bytesIn.add(count);
+    }
+
+    /**
+     * Record a String given to the stage that is not written on as it is through the stage's write methods.
+     *
+     * @param s the String
+     */
+    void received(final String s) {
+        bytesIn.add(encode(s).length);
+    }
+
+    private static byte[] encode(final String s) {
+        return String.valueOf(s).getBytes(Charset.defaultCharset());
+    }
+
+    /**
+     * Record a byte written to the next stage.
+     *
+     * @param b     the byte
+     * @param nanos the time taken by the write
+     */
+    void wrote(final int b, final long nanos) {
+        if (receivedOnWrite) {
+            bytesIn.increment();
+        }
+        bytesOut.increment();
+        if ((byte) b == NEWLINE) {
+            lines.increment();
+        }
+        timed(nanos);
+    }
+
+    /**
+     * Record bytes written to the next stage.
+     *
+     * @param buf   the array holding the bytes
+     * @param off   the offset of the first byte
+     * @param len   the number of bytes
+     * @param nanos the time taken by the write
+     */
+    void wrote(final byte[] buf, final int off, final int len, final long nanos) {
+        if (receivedOnWrite) {
+            bytesIn.add(len);
+        }
+        counted(buf, off, len, nanos);
+    }
+
+    /**
+     * Record a String printed directly to the next stage, rather than through the stage's write methods.
+     *
+     * @param s     the String
+     * @param nanos the time taken by the print
+     */
+    void wrote(final String s, final long nanos) {
+        final byte[] bytes = encode(s);
+        counted(bytes, 0, bytes.length, nanos);
+    }
+
+    private void counted(final byte[] buf, final int off, final int len, final long nanos) {
+        bytesOut.add(len);
+        int count = 0;
+        for (int i = off; i < off + len; i++) {
+            if (buf[i] == NEWLINE) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            lines.add(count);
+        }
+        timed(nanos);
+    }
+
+    private void timed(final long nanos) {
+        writes.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram[Math.min(HISTOGRAM_SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)), HISTOGRAM_SIZE - 1)]
+                .increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This is only meaningful for stages that remove bytes without adding any, such as filters. It includes any
+     * bytes the stage is holding back, such as a partial line.</p>
+     */
+    @Override
+    public long getDroppedBytes() {
+        return Math.max(0, getBytesIn() - getBytesOut());
+    }
+
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+
+    @Override
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    @Override
+    public long getMeanLatencyNanos() {
+        final long count = writes.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return totalNanos.sum() / count;
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        final long[] counts = new long[HISTOGRAM_SIZE];
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: in=%d out=%d lines=%d writes=%d meanLatencyNanos=%d maxLatencyNanos=%d",
+                             name, getBytesIn(), getBytesOut(), getLines(), getWrites(), getMeanLatencyNanos(),
+                             getMaxLatencyNanos());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+/**
+ * The JMX management interface for {@link StageMetrics}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public interface StageMetricsMBean {
+
+    /**
+     * The name of the stage.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * The number of bytes written to the stage.
+     *
+     * @return the number of bytes
+     */
+    long getBytesIn();
+
+    /**
+     * The number of bytes the stage has written to the next stage.
+     *
+     * @return the number of bytes
+     */
+    long getBytesOut();
+
+    /**
+     * The number of bytes written to the stage that it has not written to the next stage.
+     *
+     * @return the number of bytes
+     */
+    long getDroppedBytes();
+
+    /**
+     * The number of line endings the stage has written to the next stage.
+     *
+     * @return the number of lines
+     */
+    long getLines();
+
+    /**
+     * The number of writes the stage has made to the next stage.
+     *
+     * @return the number of writes
+     */
+    long getWrites();
+
+    /**
+     * The mean time taken by a write to the next stage.
+     *
+     * @return the time in nanoseconds
+     */
+    long getMeanLatencyNanos();
+
+    /**
+     * The longest time taken by a write to the next stage.
+     *
+     * @return the time in nanoseconds
+     */
+    long getMaxLatencyNanos();
+
+    /**
+     * The number of writes to the next stage by time taken, where the count at index {@code i} is of the writes that
+     * took less than 2<sup>i</sup> nanoseconds, and at least half that.
+     *
+     * @return the counts
+     */
+    long[] getLatencyHistogram();
+}
@@ -56,6 +56,8 @@ class StringFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
     public final void print(final String s) {
         if (predicate.test(s)) {
             super.print(s);
+        } else {
+            received(s);
         }
     }
 
@@ -63,6 +65,9 @@ class StringFilterPrintStreamWrapper extends PassthroughPrintStreamWrapper {
     public final void println(final String s) {
         if (predicate.test(s)) {
             super.println(s);
+        } else {
+            received(s);
+            received(System.lineSeparator());
         }
     }
 }
@@ -51,6 +51,7 @@ class StringTransformPrintStreamWrapper extends PassthroughPrintStreamWrapper {
 
     @Override
     public final void print(final String s) {
-        printStreamDelegate().print(transformer.apply(s));
+        received(s);
+        printToNext(transformer.apply(s));
     }
 }
@@ -0,0 +1,279 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Wrapper for {@link PrintStream} that sends all writes through a pipeline of wrappers that can be replaced while it
+ * is in use.
+ *
+ * <p>The current pipeline is held in a volatile field, so writes take no lock of their own. Each call is passed,
+ * unchanged, to the pipeline, which counts the calls in flight. {@link #swap(Function)} builds a new pipeline, flushes
+ * the old one, and switches to the new one. The old pipeline is closed on a background thread as soon as no calls are
+ * in flight on it, so neither a swap nor the last of those calls waits for its stages to finish, and a swap may be
+ * made from within a call.</p>
+ *
+ * <p>Pipelines are built over a view of the core {@link PrintStream} that flushes rather than closes it, so the
+ * stages of an old pipeline, such as background threads, can be closed without closing the core.</p>
+ *
+ * <p>Output is only kept in order within each pipeline. Anything written to the old pipeline by calls in flight
+ * during a swap, or still held back by its stages after the flush, is written when it is closed, and may follow
+ * output from the new pipeline.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class SwappablePrintStreamWrapper extends ForwardingPrintStreamWrapper {
+
+    private static final long DRAIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private static final long CLOSE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final PrintStream core;
+
+    private final Object swapLock = new Object();
+
+    private volatile Installed current;
+
+    /**
+     * Constructor to wrap a PrintStream.
+     *
+     * @param core the PrintStream that each pipeline writes to
+     */
+    SwappablePrintStreamWrapper(final PrintStream core) {
+        super(core);
+        this.core = core;
+        this.current = new Installed(new Shield(core));
+    }
+
+    /**
+     * Wrap {@link System#out}, unless it is already swappable, and install the wrapper as {@link System#out}.
+     *
+     * @return the wrapper installed as {@link System#out}
+     */
+    static SwappablePrintStreamWrapper installOnSystemOut() {
+        synchronized (SwappablePrintStreamWrapper.class) {
+            final PrintStream out = System.out;
+            if (out instanceof SwappablePrintStreamWrapper) {
+                return (SwappablePrintStreamWrapper) out;
+            }
+            final SwappablePrintStreamWrapper wrapper = new SwappablePrintStreamWrapper(out);
+            System.setOut(wrapper);
+            return wrapper;
+        }
+    }
+
+    @Override
+    protected PrintStream target() {
+        while (true) {
+            final Installed installed = current;
+            installed.inFlight.incrementAndGet();
+            if (installed == current) {
+                return installed;
+            }
+            installed.release();
+        }
+    }
+
+    @Override
+    protected void release(final PrintStream target) {
+        ((Installed) target).release();
+    }
+
+    /**
+     * Replace the pipeline.
+     *
+     * <p>Returns without waiting for the calls in flight on the old pipeline, or for it to be closed. Swaps are made
+     * one at a time.</p>
+     *
+     * @param pipeline builds the new pipeline from the PrintStream it should write to, e.g.
+     *                 {@code core -> PrintStreamWrapper.filter(core, ...)}
+     */
+    public void swap(@NonNull final Function<PrintStream, PrintStream> pipeline) {
+        synchronized (swapLock) {
+            final PrintStream stream = pipeline.apply(new Shield(core));
+            final Installed old = current;
+            old.flush();
+            current = new Installed(stream);
+            old.retire();
+        }
+    }
+
+    /**
+     * The pipeline currently in use.
+     *
+     * @return the pipeline
+     */
+    public PrintStream getPipeline() {
+        return current.pipeline;
+    }
+
+    @Override
+    public void flush() {
+        final PrintStream target = target();
+        try {
+            target.flush();
+        } finally {
+            release(target);
+        }
+    }
+
+    @Override
+    public boolean checkError() {
+        return current.pipeline.checkError();
+    }
+
+    /**
+     * Closes the pipeline once the calls in flight have returned, then closes the core PrintStream.
+     *
+     * <p>Waits for up to a second for the calls in flight, so that a call that blocks, or a close from within a call,
+     * does not hang. If none are left, the pipeline is closed on the caller's thread. Otherwise it is closed on a
+     * background thread once they return, and any output they write after the core is closed is lost.</p>
+     */
+    @Override
+    public void close() {
+        synchronized (swapLock) {
+            final Installed installed = current;
+            final long deadline = System.nanoTime() + CLOSE_WAIT_NANOS;
+            while (installed.hasCallsInFlight() && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(DRAIN_PARK_NANOS);
+            }
+            if (installed.hasCallsInFlight()) {
+                installed.retire();
+            } else {
+                installed.close();
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * An installed pipeline, and the number of calls in flight on it.
+     */
+    private static final class Installed extends ForwardingPrintStreamWrapper {
+
+        private final PrintStream pipeline;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private volatile boolean retired;
+
+        Installed(final PrintStream pipeline) {
+            super(pipeline);
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        protected PrintStream target() {
+            return pipeline;
+        }
+
+        @Override
+        public void flush() {
+            pipeline.flush();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                pipeline.close();
+            }
+        }
+
+        /**
+         * Marks a call on the pipeline as returned, starting to close the pipeline if it is the last call on a retired
+         * one.
+         */
+        void release() {
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                closeInBackground();
+            }
+        }
+
+        /**
+         * Stops the pipeline from being used, starting to close it now if there are no calls in flight.
+         */
+        void retire() {
+            retired = true;
+            if (inFlight.get() == 0) {
+                closeInBackground();
+            }
+        }
+
+        private void closeInBackground() {
+            if (!closed.get()) {
+                final Thread closer = new Thread(this::close, "swappable-print-stream-close");
+                closer.setDaemon(true);
+                closer.start();
+            }
+        }
+
+        boolean hasCallsInFlight() {
+            return inFlight.get() > 0;
+        }
+    }
+
+    /**
+     * The view of the core PrintStream given to each pipeline, which is flushed when the pipeline is closed.
+     */
+    private static final class Shield extends ForwardingPrintStreamWrapper {
+
+        private final PrintStream core;
+
+        Shield(final PrintStream core) {
+            super(core);
+            this.core = core;
+        }
+
+        @Override
+        protected PrintStream target() {
+            return core;
+        }
+
+        @Override
+        public void flush() {
+            core.flush();
+        }
+
+        /**
+         * Flushes, but does not close, the core PrintStream.
+         */
+        @Override
+        public void close() {
+            core.flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return core.checkError();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import lombok.NonNull;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Wrapper for {@link PrintStream} that decodes all writes into lines of text and applies a supplied function to each
+ * line before writing to any inner wrapper or, if there isn't one, to the core {@link PrintStream}.
+ *
+ * <p>Every write is transformed, whether it arrives through {@code print}, {@code println}, {@code printf} or
+ * {@code write}. The bytes are decoded with the platform's default charset, which is the one this PrintStream uses to
+ * encode them, by a single reused {@link CharsetDecoder}. Each complete line is given to the function as a
+ * {@link CharBuffer} view over the decoded characters, without its line ending, and is only valid for the duration of
+ * the call. A line ending is either {@code \n} or {@code \r\n}, and is written after the result just as it was
+ * written. If the function returns null, the line, including its line ending, is dropped.</p>
+ *
+ * <p>The lines that result from each write are encoded into a reused buffer and written on with a single
+ * {@link #write(byte[], int, int)}. A line is not written until its line ending has been written, or the stream is
+ * closed. Writes after the stream is closed are discarded and set the error flag.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class TextTransformPrintStreamWrapper extends PassthroughPrintStreamWrapper {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char NEWLINE = '\n';
+
+    private static final char RETURN = '\r';
+
+    private final Function<CharSequence, CharSequence> operation;
+
+    private final CharsetDecoder decoder;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final CharBuffer lineEnding = CharBuffer.wrap(new char[]{RETURN, NEWLINE});
+
+    private final byte[] single = new byte[1];
+
+    private char[] chars = new char[BUFFER_SIZE];
+
+    private CharBuffer decoded = CharBuffer.wrap(chars);
+
+    private CharBuffer line = CharBuffer.wrap(chars);
+
+    private int scanFrom;
+
+    private ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private boolean closed;
+
+    /**
+     * Constructor to wrap an existing PrintStream.
+     *
+     * @param original  the PrintStream to wrap
+     * @param operation the function to apply to each line, returning null to drop the line
+     */
+    TextTransformPrintStreamWrapper(
+            final PrintStream original,
+            @NonNull final Function<CharSequence, CharSequence> operation
+                                   ) {
+        super(original);
+        this.operation = operation;
+        final Charset charset = Charset.defaultCharset();
+        this.decoder = charset.newDecoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public final void write(final int b) {
+        synchronized (this) {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+    }
+
+    @Override
+    public final void write(final byte[] buf, final int off, final int len) {
+        ByteBufferSegment.requireWithin(buf, off, len);
+        received(len);
+        synchronized (this) {
+            if (closed) {
+                setError();
+                return;
+            }
+            final int end = off + len;
+            int position = off;
+            while (position < end) {
+                final int count = Math.min(end - position, input.remaining());
+                input.put(buf, position, count);
+                position += count;
+                decodeInput(false);
+            }
+            writeOutput();
+        }
+    }
+
+    private void decodeInput(final boolean endOfInput) {
+        input.flip();
+        CoderResult result = decoder.decode(input, decoded, endOfInput);
+        takeLines();
+        while (result.isOverflow()) {
+            if (!decoded.hasRemaining()) {
+                growChars();
+            }
+            result = decoder.decode(input, decoded, endOfInput);
+            takeLines();
+        }
+        input.compact();
+    }
+
+    /**
+     * Applies the operation to each complete line, then moves any partial line to the start of the buffer.
+     */
+    private void takeLines() {
+        final int count = decoded.position();
+        int start = 0;
+        for (int i = scanFrom; i < count; i++) {
+            if (chars[i] == NEWLINE) {
+                acceptLine(start, i, true);
+                start = i + 1;
+            }
+        }
+        if (start > 0) {
+            System.arraycopy(chars, start, chars, 0, count - start);
+            decoded.position(count - start);
+        }
+        scanFrom = count - start;
+    }
+
+    private void acceptLine(final int start, final int end, final boolean ended) {
+        final boolean endsWithReturn = ended && end > start && chars[end - 1] == RETURN;
+        line.clear();
+        if (endsWithReturn) {
+            line.limit(end - 1).position(start);
+        } else {
+            line.limit(end).position(start);
+        }
+        final CharSequence result = operation.apply(line);
+        if (result != null) {
+            encoder.reset();
+            final CharBuffer text;
+            if (result instanceof CharBuffer) {
+                text = ((CharBuffer) result).duplicate();
+            } else {
+                text = CharBuffer.wrap(result);
+            }
+            encode(text, !ended);
+            if (ended) {
+                lineEnding.clear();
+                if (!endsWithReturn) {
+                    lineEnding.position(1);
+                }
+                encode(lineEnding, true);
+            }
+            while (encoder.flush(output).isOverflow()) {
+                growOutput();
+            }
+        }
+    }
+
+    private void encode(final CharBuffer text, final boolean endOfInput) {
+        while (encoder.encode(text, output, endOfInput).isOverflow()) {
+            growOutput();
+        }
+    }
+
+    private void growChars() {
+        final int count = decoded.position();
+        chars = Arrays.copyOf(chars, chars.length * 2);
+        decoded = CharBuffer.wrap(chars);
+        decoded.position(count);
+        line = CharBuffer.wrap(chars);
+    }
+
+    private void growOutput() {
+        final ByteBuffer larger = ByteBuffer.allocate(output.capacity() * 2);
+        output.flip();
+        larger.put(output);
+        output = larger;
+    }
+
+    private void writeOutput() {
+        if (output.position() > 0) {
+            super.write(output.array(), 0, output.position());
+            output.clear();
+        }
+    }
+
+    /**
+     * Transforms and writes any partial line, then closes the stream.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            decodeInput(true);
+            while (decoder.flush(decoded).isOverflow()) {
+                growChars();
+            }
+            takeLines();
+            if (decoded.position() > 0) {
+                acceptLine(0, decoded.position(), false);
+                decoded.clear();
+                scanFrom = 0;
+            }
+            writeOutput();
+        }
+        super.close();
+    }
+}
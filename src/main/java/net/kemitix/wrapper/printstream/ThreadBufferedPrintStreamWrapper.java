@@ -0,0 +1,249 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wrapper for {@link PrintStream} where each thread assembles its own complete lines, which a single background
+ * thread then writes to the wrapped PrintStream.
+ *
+ * <p>Each thread writes into its own PrintStream and line buffer, so writers never wait for each other or for the
+ * wrapped PrintStream. Whenever a write completes one or more lines, they are copied into one array and added to a
+ * lock-free queue. The background thread gathers the queued lines into batches, writing each batch with a single
+ * write, and flushes the wrapped PrintStream whenever the queue is empty.</p>
+ *
+ * <p>Lines from different threads are never interleaved. A partial line stays with its thread until it is completed,
+ * or until that thread calls {@link #flush()} or {@link #close()}. The queue is unbounded.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class ThreadBufferedPrintStreamWrapper extends ForwardingPrintStreamWrapper {
+
+    private static final int BATCH_SIZE = 8192;
+
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final PrintStream subject;
+
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong queued = new AtomicLong();
+
+    private final ThreadLocal<LocalStream> local = ThreadLocal.withInitial(LocalStream::new);
+
+    private final Thread writer;
+
+    private volatile long written;
+
+    private volatile boolean parked;
+
+    private volatile boolean closed;
+
+    private volatile boolean discarded;
+
+    /**
+     * Constructor to wrap a PrintStream.
+     *
+     * @param original the PrintStream to write the lines to
+     */
+    ThreadBufferedPrintStreamWrapper(final PrintStream original) {
+        super(original);
+        this.subject = original;
+        this.writer = new Thread(this::writeLines, "thread-buffered-print-stream");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    protected PrintStream target() {
+        return local.get().printStream;
+    }
+
+    private void enqueue(final byte[] lines) {
+        if (closed) {
+            discarded = true;
+            return;
+        }
+        queued.incrementAndGet();
+        queue.offer(lines);
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLines() {
+        final byte[] batch = new byte[BATCH_SIZE];
+        while (true) {
+            long count = written;
+            int length = 0;
+            for (byte[] lines = queue.poll(); lines != null; lines = queue.poll()) {
+                if (length + lines.length > BATCH_SIZE) {
+                    subject.write(batch, 0, length);
+                    length = 0;
+                }
+                if (lines.length > BATCH_SIZE) {
+                    subject.write(lines, 0, lines.length);
+                } else {
+                    System.arraycopy(lines, 0, batch, length, lines.length);
+                    length += lines.length;
+                }
+                count++;
+            }
+            if (length > 0) {
+                subject.write(batch, 0, length);
+            }
+            subject.flush();
+            written = count;
+            if (closed && queue.isEmpty()) {
+                return;
+            }
+            parked = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+    }
+
+    /**
+     * Passes on the calling thread's partial line, then waits until all the lines queued so far have been written to
+     * the wrapped PrintStream and it has been flushed.
+     */
+    @Override
+    public void flush() {
+        local.get().handOffPartialLine();
+        final long target = queued.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.parkNanos(this, FLUSH_POLL_NANOS);
+        }
+    }
+
+    /**
+     * Passes on the calling thread's partial line, writes all the queued lines, then closes the wrapped PrintStream.
+     *
+     * <p>Partial lines held by other threads are discarded.</p>
+     */
+    @Override
+    public void close() {
+        local.get().handOffPartialLine();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            setError();
+        }
+        subject.close();
+    }
+
+    /**
+     * Flushes, then checks the error state of the wrapped PrintStream, and whether any lines were written after this
+     * PrintStream was closed.
+     *
+     * @return true if there has been an error
+     */
+    @Override
+    public boolean checkError() {
+        return super.checkError() || discarded;
+    }
+
+    /**
+     * The number of arrays of complete lines that are waiting to be written.
+     *
+     * @return the number of arrays queued and not yet written
+     */
+    long getPendingWrites() {
+        return Math.max(0, queued.get() - written);
+    }
+
+    /**
+     * A thread's own PrintStream, writing into its own line buffer.
+     */
+    private final class LocalStream extends OutputStream {
+
+        private static final byte NEWLINE = '\n';
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final PrintStream printStream = new PrintStream(this, false);
+
+        private byte[] pending = new byte[INITIAL_CAPACITY];
+
+        private int count;
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(count + 1);
+            pending[count] = (byte) b;
+            count++;
+            if (b == NEWLINE) {
+                handOffPartialLine();
+            }
+        }
+
+        @Override
+        public void write(final byte[] buf, final int off, final int len) {
+            ByteBufferSegment.requireWithin(buf, off, len);
+            int end = off + len;
+            while (end > off && buf[end - 1] != NEWLINE) {
+                end--;
+            }
+            if (end > off) {
+                if (count == 0) {
+                    enqueue(Arrays.copyOfRange(buf, off, end));
+                } else {
+                    append(buf, off, end - off);
+                    handOffPartialLine();
+                }
+            }
+            append(buf, end, off + len - end);
+        }
+
+        private void handOffPartialLine() {
+            if (count > 0) {
+                enqueue(Arrays.copyOf(pending, count));
+                count = 0;
+            }
+        }
+
+        private void append(final byte[] buf, final int off, final int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(buf, off, pending, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(capacity, pending.length * 2));
+            }
+        }
+    }
+}
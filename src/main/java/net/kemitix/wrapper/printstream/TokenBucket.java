@@ -0,0 +1,93 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.wrapper.printstream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket, using the generic cell rate algorithm.
+ *
+ * <p>Rather than counting tokens, the bucket holds the theoretical time at which it will next be empty. Taking tokens
+ * moves that time forward by the time it takes to earn them, with a single compare-and-set. Tokens may be taken while
+ * that time is no further ahead of now than it takes to earn a full bucket.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class TokenBucket {
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    private final LongSupplier clock;
+
+    private final AtomicLong emptyAt;
+
+    /**
+     * Constructor.
+     *
+     * @param tokensPerSecond the rate at which tokens are earned, which must be positive
+     * @param burst           the number of tokens that can be saved up, which must be positive
+     * @param clock           the source of the current time, in nanoseconds
+     */
+    TokenBucket(final long tokensPerSecond, final long burst, final LongSupplier clock) {
+        this.nanosPerToken = Math.max(1, TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+        this.clock = clock;
+        this.emptyAt = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Take tokens if there are enough.
+     *
+     * @param tokens the number of tokens to take
+     *
+     * @return true if the tokens were taken
+     */
+    boolean tryTake(final long tokens) {
+        final long cost = nanosPerToken * tokens;
+        while (true) {
+            final long now = clock.getAsLong();
+            final long current = emptyAt.get();
+            final long next = Math.max(current, now) + cost;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take tokens whether there are enough or not, going into debt if needed.
+     *
+     * @param tokens the number of tokens to take
+     */
+    void take(final long tokens) {
+        final long cost = nanosPerToken * tokens;
+        final long now = clock.getAsLong();
+        emptyAt.getAndUpdate(current -> Math.max(current, now) + cost);
+    }
+}
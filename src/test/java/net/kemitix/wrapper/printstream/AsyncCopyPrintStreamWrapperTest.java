@@ -0,0 +1,128 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.AsyncCopyPrintStreamWrapper.Backpressure;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link AsyncCopyPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class AsyncCopyPrintStreamWrapperTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    private final PrintStream original = new PrintStream(out);
+
+    private final PrintStream copyTo = new PrintStream(copy);
+
+    @Test
+    public void requiresCopyTo() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.asyncCopy(original, null, 16, Backpressure.BLOCK))
+                .withMessageContaining("copyTo");
+    }
+
+    @Test
+    public void requiresBackpressure() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.asyncCopy(original, copyTo, 16, null))
+                .withMessageContaining("backpressure");
+    }
+
+    @Test
+    public void writesToCoreImmediately() throws IOException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.asyncCopy(original, copyTo, 16, Backpressure.BLOCK);
+        //when
+        wrapper.write("test".getBytes());
+        wrapper.write('x');
+        //then
+        assertThat(out.toString()).isEqualTo("testx");
+    }
+
+    @Test
+    public void flushWaitsForCopy() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.asyncCopy(original, copyTo, 16, Backpressure.BLOCK);
+        //when
+        wrapper.println("a line longer than the ring buffer");
+        wrapper.write('x');
+        wrapper.flush();
+        //then
+        assertThat(copy.toString()).isEqualTo("a line longer than the ring buffer" + System.lineSeparator() + "x");
+    }
+
+    @Test
+    public void closeDrainsCopyAndClosesCore() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.asyncCopy(original, copyTo, 16, Backpressure.BLOCK);
+        wrapper.print("test");
+        //when
+        wrapper.close();
+        //then
+        assertThat(copy.toString()).isEqualTo("test");
+        original.print("closed");
+        assertThat(original.checkError()).isTrue();
+    }
+
+    @Test
+    public void whenCopyIsSlowThenWriterIsNotDelayed() throws InterruptedException {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final PrintStream slow = new PrintStream(copy) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(buf, off, len);
+            }
+        };
+        final AsyncCopyPrintStreamWrapper wrapper =
+                PrintStreamWrapper.asyncCopy(original, slow, 4, Backpressure.DROP_NEWEST);
+        //when
+        for (int i = 0; i < 100; i++) {
+            wrapper.print("test");
+        }
+        //then
+        assertThat(out.size()).isEqualTo(400);
+        assertThat(wrapper.getDroppedBytes()).isPositive();
+        assertThat(wrapper.getPendingBytes()).isLessThanOrEqualTo(4);
+        release.countDown();
+        wrapper.flush();
+        assertThat((long) copy.size()).isEqualTo(400 - wrapper.getDroppedBytes());
+    }
+
+    @Test
+    public void whenCopyThrowsThenErrorIsSetAndWritersAreNotHeld() {
+        //given
+        final PrintStream failing = new PrintStream(copy) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                throw new IllegalStateException("copy failed");
+            }
+        };
+        final PrintStream wrapper = PrintStreamWrapper.asyncCopy(original, failing, 4, Backpressure.BLOCK);
+        //when
+        for (int i = 0; i < 100; i++) {
+            wrapper.print("test");
+        }
+        wrapper.flush();
+        //then
+        assertThat(out.size()).isEqualTo(400);
+        assertThat(wrapper.checkError()).isTrue();
+    }
+}
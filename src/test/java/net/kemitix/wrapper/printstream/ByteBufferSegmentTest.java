@@ -2,6 +2,9 @@ package net.kemitix.wrapper.printstream;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -80,4 +83,169 @@ public class ByteBufferSegmentTest {
                             .forEach(b -> {});
                 });
     }
+
+    @Test
+    public void whenOffsetNegativeThenThrowException() {
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+                .isThrownBy(() -> ByteBufferSegment.requireWithin(new byte[4], -1, 2));
+    }
+
+    @Test
+    public void whenSegmentFillsBufferThenIsWithin() {
+        ByteBufferSegment.requireWithin(new byte[4], 0, 4);
+        ByteBufferSegment.requireWithin(new byte[4], 4, 0);
+    }
+
+    @Test
+    public void canResetToViewAnotherBuffer() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment();
+        final List<Byte> capture = new ArrayList<>();
+        //when
+        segment.reset(new byte[]{'a', 'b'}, 0, 2)
+               .reset(new byte[]{'c', 'd', 'e'}, 1, 2)
+               .forEach(capture::add);
+        //then
+        assertThat(capture).containsExactly((byte) 'd', (byte) 'e');
+    }
+
+    @Test
+    public void whenResetBeyondBufferThenThrowException() {
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+                .isThrownBy(() -> new ByteBufferSegment().reset(new byte[2], 1, 2));
+    }
+
+    @Test
+    public void newSegmentIsEmpty() {
+        assertThat(new ByteBufferSegment().isEmpty()).isTrue();
+        assertThat(new ByteBufferSegment().length()).isZero();
+    }
+
+    @Test
+    public void canGetBytesRelativeToStartOfSegment() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 1, 2);
+        //then
+        assertThat(segment.get(0)).isEqualTo((byte) 'b');
+        assertThat(segment.get(1)).isEqualTo((byte) 'c');
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.get(2));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.get(-1));
+    }
+
+    @Test
+    public void canFindIndexOfByteRelativeToStartOfSegment() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'a'}, 1, 3);
+        //then
+        assertThat(segment.indexOf((byte) 'c')).isEqualTo(1);
+        assertThat(segment.indexOf((byte) 'a')).isEqualTo(2);
+        assertThat(segment.indexOf((byte) 'x')).isEqualTo(-1);
+    }
+
+    @Test
+    public void sliceSharesTheBuffer() {
+        //given
+        final byte[] bytes = {'a', 'b', 'c', 'd'};
+        final ByteBufferSegment segment = new ByteBufferSegment(bytes, 1, 3);
+        //when
+        final ByteBufferSegment slice = segment.slice(1, 2);
+        //then
+        assertThat(slice.array()).isSameAs(bytes);
+        assertThat(slice.offset()).isEqualTo(2);
+        assertThat(slice.length()).isEqualTo(2);
+    }
+
+    @Test
+    public void sliceCanReuseExistingSegment() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 0, 4);
+        final ByteBufferSegment into = new ByteBufferSegment();
+        //then
+        assertThat(segment.slice(3, 1, into)).isSameAs(into);
+        assertThat(into.get(0)).isEqualTo((byte) 'd');
+    }
+
+    @Test
+    public void whenSliceBeyondSegmentThenThrowException() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 1, 2);
+        //then
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.slice(1, 2));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.slice(-1, 1));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.slice(0, -1));
+    }
+
+    @Test
+    public void canSkipBytesAtFrontOfSegment() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 1, 3);
+        //when
+        segment.skip(2);
+        //then
+        assertThat(segment.offset()).isEqualTo(3);
+        assertThat(segment.length()).isEqualTo(1);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> segment.skip(2));
+    }
+
+    @Test
+    public void canWrapAsByteBuffer() {
+        //given
+        final byte[] bytes = {'a', 'b', 'c', 'd'};
+        //when
+        final ByteBuffer buffer = new ByteBufferSegment(bytes, 1, 2).asByteBuffer();
+        //then
+        assertThat(buffer.array()).isSameAs(bytes);
+        assertThat(buffer.position()).isEqualTo(1);
+        assertThat(buffer.remaining()).isEqualTo(2);
+    }
+
+    @Test
+    public void canCopyIntoArray() {
+        //given
+        final byte[] dst = {'x', 'x', 'x', 'x'};
+        //when
+        final int copied = new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 1, 2).copyTo(dst, 1);
+        //then
+        assertThat(copied).isEqualTo(2);
+        assertThat(new String(dst)).isEqualTo("xbcx");
+    }
+
+    @Test
+    public void canWriteToOutputStream() throws IOException {
+        //given
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //when
+        new ByteBufferSegment(new byte[]{'a', 'b', 'c', 'd'}, 1, 2).writeTo(out);
+        //then
+        assertThat(out.toString()).isEqualTo("bc");
+    }
+
+    @Test
+    public void filterIntoConsumesAsMuchAsOutputCanHold() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment("abcabc".getBytes(), 0, 6);
+        final byte[] out = new byte[4];
+        //when
+        final int first = segment.filterInto(b -> b != 'b', out);
+        //then
+        assertThat(new String(out, 0, first)).isEqualTo("aca");
+        assertThat(segment.length()).isEqualTo(2);
+        //when
+        final int second = segment.filterInto(b -> b != 'b', out);
+        //then
+        assertThat(new String(out, 0, second)).isEqualTo("c");
+        assertThat(segment.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void transformIntoConsumesAsMuchAsOutputCanHold() {
+        //given
+        final ByteBufferSegment segment = new ByteBufferSegment("abcabc".getBytes(), 1, 5);
+        final byte[] out = new byte[3];
+        //when
+        final int first = segment.transformInto(b -> (byte) Character.toUpperCase(b), out);
+        //then
+        assertThat(new String(out, 0, first)).isEqualTo("BCA");
+        assertThat(segment.length()).isEqualTo(2);
+    }
 }
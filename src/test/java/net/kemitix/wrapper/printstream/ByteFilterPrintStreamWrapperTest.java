@@ -7,6 +7,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -157,4 +159,82 @@ public class ByteFilterPrintStreamWrapperTest {
         //then
         assertThat(out.toString()).startsWith("java.lang.bject@");
     }
+
+    @Test
+    public void requirePrimitiveFilterWhenWrappingPrintStream() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter filter = null;
+        //then
+        assertThatNullPointerException().isThrownBy(() -> {
+            //when
+            PrintStreamWrapper.filter(original, filter);
+        })
+                                        //and
+                                        .withMessageContaining("filter");
+    }
+
+    @Test
+    public void whenPrimitiveFilterSelectsNonEThenFilterWritesByteArrayWithoutAnyEs() throws IOException {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter filter = b -> b != 'e';
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, filter);
+        //when
+        wrapper.write("test".getBytes());
+        wrapper.write('e');
+        wrapper.write('x');
+        //then
+        assertThat(out.toString()).isEqualTo("tstx");
+    }
+
+    @Test
+    public void primitiveFilterCompactsBulkInputIntoStartOfOutput() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter filter = b -> b != 'e';
+        final byte[] in = "xtestx".getBytes();
+        final byte[] out = new byte[4];
+        //when
+        final int count = filter.filter(in, 1, 4, out);
+        //then
+        assertThat(count).isEqualTo(3);
+        assertThat(new String(out, 0, count)).isEqualTo("tst");
+    }
+
+    @Test
+    public void whenWritingByteArrayThenWritesOnceDownstream() {
+        //given
+        final AtomicInteger writes = new AtomicInteger();
+        final PrintStream counting = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes.incrementAndGet();
+                super.write(buf, off, len);
+            }
+        };
+        final byte[] line = new byte[4096];
+        Arrays.fill(line, (byte) 'e');
+        line[0] = 'x';
+        final PrintStreamWrapper.PrimitiveByteFilter filter = b -> true;
+        final PrintStream wrapper = PrintStreamWrapper.filter(counting, filter);
+        //when
+        wrapper.write(line, 0, line.length);
+        //then
+        assertThat(writes.get()).isEqualTo(1);
+        assertThat(out.toString()).hasSize(4096).startsWith("xe");
+    }
+
+    @Test
+    public void whenWritingByteArrayLargerThanScratchBufferThenWritesAllSurvivingBytes() {
+        //given
+        final byte[] bytes = new byte[20000];
+        Arrays.fill(bytes, (byte) 'e');
+        bytes[0] = 'a';
+        bytes[10000] = 'b';
+        bytes[19999] = 'c';
+        final PrintStreamWrapper.PrimitiveByteFilter filter = b -> b != 'e';
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, filter);
+        //when
+        wrapper.write(bytes, 0, bytes.length);
+        //then
+        assertThat(out.toString()).isEqualTo("abc");
+    }
 }
@@ -0,0 +1,174 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.AsyncCopyPrintStreamWrapper.Backpressure;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link ByteRingBuffer}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class ByteRingBufferTest {
+
+    private final byte[] into = new byte[16];
+
+    @Test
+    public void requiresPositiveCapacity() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ByteRingBuffer(0, Backpressure.BLOCK))
+                .withMessageContaining("capacity");
+    }
+
+    @Test
+    public void takesBytesInOrderAcrossTheEndOfTheRing() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.BLOCK);
+        ring.put("abc".getBytes(), 0, 3);
+        assertThat(take(ring)).isEqualTo("abc");
+        //when
+        ring.put("de".getBytes(), 0, 2);
+        ring.put((byte) 'f');
+        //then
+        assertThat(take(ring)).isEqualTo("def");
+    }
+
+    @Test
+    public void whenDropNewestAndFullThenNewBytesAreDropped() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.DROP_NEWEST);
+        ring.put("abc".getBytes(), 0, 3);
+        //when
+        ring.put("de".getBytes(), 0, 2);
+        ring.put((byte) 'f');
+        ring.put((byte) 'g');
+        //then
+        assertThat(take(ring)).isEqualTo("abcf");
+        assertThat(ring.getDroppedBytes()).isEqualTo(3);
+    }
+
+    @Test
+    public void whenDropNewestAndWriteLargerThanRingThenWholeWriteIsDropped() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.DROP_NEWEST);
+        //when
+        ring.put("abcdef".getBytes(), 0, 6);
+        ring.put((byte) 'g');
+        //then
+        assertThat(take(ring)).isEqualTo("g");
+        assertThat(ring.getDroppedBytes()).isEqualTo(6);
+    }
+
+    @Test
+    public void whenDropOldestAndFullThenOldestBytesAreDiscarded() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.DROP_OLDEST);
+        ring.put("abc".getBytes(), 0, 3);
+        //when
+        ring.put("de".getBytes(), 0, 2);
+        ring.put((byte) 'f');
+        //then
+        assertThat(take(ring)).isEqualTo("cdef");
+        assertThat(ring.getDroppedBytes()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenDropOldestAndWriteLargerThanRingThenKeepsNewestBytes() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.DROP_OLDEST);
+        ring.put("ab".getBytes(), 0, 2);
+        //when
+        ring.put("cdefgh".getBytes(), 1, 5);
+        //then
+        assertThat(take(ring)).isEqualTo("efgh");
+        assertThat(ring.getDroppedBytes()).isEqualTo(3);
+    }
+
+    @Test
+    public void whenBlockAndFullThenWriterWaitsForSpace() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.BLOCK);
+        ring.put("abcd".getBytes(), 0, 4);
+        final CountDownLatch written = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> {
+            try {
+                ring.put("efgh".getBytes(), 0, 4);
+                written.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        //when
+        writer.start();
+        //then
+        assertThat(written.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(take(ring)).isEqualTo("abcd");
+        ring.taken();
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(take(ring)).isEqualTo("efgh");
+        assertThat(ring.getDroppedBytes()).isZero();
+    }
+
+    @Test
+    public void whenBlockAndWriteLargerThanRingThenWritesInChunks() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.BLOCK);
+        final Thread writer = new Thread(() -> {
+            try {
+                ring.put("abcdefghij".getBytes(), 0, 10);
+                ring.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+        final StringBuilder result = new StringBuilder();
+        //when
+        for (int count = ring.take(into); count >= 0; count = ring.take(into)) {
+            result.append(new String(into, 0, count));
+            ring.taken();
+        }
+        //then
+        assertThat(result.toString()).isEqualTo("abcdefghij");
+    }
+
+    @Test
+    public void awaitDrainedWaitsUntilConsumerHasFinished() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.BLOCK);
+        ring.put("ab".getBytes(), 0, 2);
+        assertThat(ring.getPendingBytes()).isEqualTo(2);
+        //when
+        take(ring);
+        //then
+        assertThat(ring.getPendingBytes()).isZero();
+        assertThat(ring.awaitDrained(10, TimeUnit.MILLISECONDS)).isFalse();
+        ring.taken();
+        assertThat(ring.awaitDrained(10, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    @Test
+    public void whenClosedThenTakeReturnsRemainingBytesThenEnd() throws InterruptedException {
+        //given
+        final ByteRingBuffer ring = new ByteRingBuffer(4, Backpressure.BLOCK);
+        ring.put("ab".getBytes(), 0, 2);
+        //when
+        ring.close();
+        ring.put("cd".getBytes(), 0, 2);
+        ring.put((byte) 'e');
+        //then
+        assertThat(take(ring)).isEqualTo("ab");
+        assertThat(ring.take(into)).isEqualTo(-1);
+        assertThat(ring.getDroppedBytes()).isEqualTo(3);
+    }
+
+    private String take(final ByteRingBuffer ring) throws InterruptedException {
+        final int count = ring.take(into);
+        return new String(into, 0, count);
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
@@ -82,4 +84,75 @@ public class ByteTransformPrintStreamWrapperTest {
         //then
         assertThat(out.toString()).isEqualTo("zz");
     }
+
+    @Test
+    public void requirePrimitiveTransformerWhenWrappingPrintStream() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform primitive = null;
+        //then
+        assertThatNullPointerException().isThrownBy(() -> {
+            //when
+            PrintStreamWrapper.transform(original, primitive);
+        })
+                                        //and
+                                        .withMessageContaining("transformer");
+    }
+
+    @Test
+    public void canTransformStringWithPrimitiveTransformer() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform primitive = b -> (byte) (b + 1);
+        final PrintStream wrapper = PrintStreamWrapper.transform(original, primitive);
+        //when
+        wrapper.print("HAL");
+        //then
+        assertThat(out.toString()).isEqualTo("IBM");
+    }
+
+    @Test
+    public void primitiveTransformerMapsBulkInputIntoStartOfOutput() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform primitive = b -> (byte) (b + 1);
+        final byte[] in = "xHALx".getBytes();
+        final byte[] out = new byte[3];
+        //when
+        primitive.transform(in, 1, 3, out);
+        //then
+        assertThat(new String(out)).isEqualTo("IBM");
+    }
+
+    @Test
+    public void canTransformByteArrayLargerThanScratchBuffer() {
+        //given
+        final byte[] bytes = new byte[20000];
+        Arrays.fill(bytes, (byte) 'a');
+        final PrintStreamWrapper.PrimitiveByteTransform primitive = b -> (byte) 'b';
+        final PrintStream wrapper = PrintStreamWrapper.transform(original, primitive);
+        //when
+        wrapper.write(bytes, 0, bytes.length);
+        //then
+        assertThat(out.toString()).hasSize(20000).doesNotContain("a");
+    }
+
+    @Test
+    public void whenCompiledTransformWritesByteArrayThenWritesOnceDownstream() {
+        //given
+        final AtomicInteger writes = new AtomicInteger();
+        final PrintStream counting = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes.incrementAndGet();
+                super.write(buf, off, len);
+            }
+        };
+        final PrintStreamWrapper.PrimitiveByteTransform primitive = b -> (byte) (b == 'a' ? 'b' : b);
+        final PrintStream wrapper = PrintStreamWrapper.transform(counting, primitive.compile());
+        final byte[] line = new byte[4096];
+        Arrays.fill(line, (byte) 'a');
+        //when
+        wrapper.write(line, 0, line.length);
+        //then
+        assertThat(writes.get()).isEqualTo(1);
+        assertThat(out.toString()).hasSize(4096).doesNotContain("a");
+    }
 }
@@ -0,0 +1,71 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link ByteTransformTable}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class ByteTransformTableTest {
+
+    private final PrintStreamWrapper.PrimitiveByteTransform upperCase =
+            b -> (byte) Character.toUpperCase((char) b);
+
+    @Test
+    public void requireTransformer() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> new ByteTransformTable(null))
+                .withMessageContaining("transformer");
+    }
+
+    @Test
+    public void appliesSourceTransformOncePerPossibleByte() {
+        //given
+        final AtomicInteger calls = new AtomicInteger();
+        final PrintStreamWrapper.PrimitiveByteTransform counting = b -> {
+            calls.incrementAndGet();
+            return b;
+        };
+        //when
+        final PrintStreamWrapper.PrimitiveByteTransform table = counting.compile();
+        table.apply((byte) 'a');
+        table.transform(new byte[]{'a', 'b'}, 0, 2, new byte[2]);
+        //then
+        assertThat(calls.get()).isEqualTo(256);
+    }
+
+    @Test
+    public void looksUpEveryPossibleByte() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform table = upperCase.compile();
+        //then
+        for (int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++) {
+            assertThat(table.apply((byte) i)).isEqualTo(upperCase.apply((byte) i));
+        }
+    }
+
+    @Test
+    public void transformsBulkInputIntoStartOfOutput() {
+        //given
+        final byte[] in = "xabcx".getBytes();
+        final byte[] out = new byte[3];
+        //when
+        upperCase.compile().transform(in, 1, 3, out);
+        //then
+        assertThat(new String(out)).isEqualTo("ABC");
+    }
+
+    @Test
+    public void compilingTableReturnsSameTable() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform table = upperCase.compile();
+        //then
+        assertThat(table.compile()).isSameAs(table);
+    }
+}
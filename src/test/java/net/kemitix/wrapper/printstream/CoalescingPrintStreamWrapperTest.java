@@ -0,0 +1,223 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link CoalescingPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class CoalescingPrintStreamWrapperTest {
+
+    private ByteArrayOutputStream out;
+
+    private List<String> writes;
+
+    private PrintStream core;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        writes = new CopyOnWriteArrayList<>();
+        core = new PrintStream(out) {
+            @Override
+            public void write(final int b) {
+                writes.add(String.valueOf((char) b));
+                super.write(b);
+            }
+
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes.add(new String(buf, off, len));
+                super.write(buf, off, len);
+            }
+        };
+    }
+
+    @Test
+    public void sizeMustBePositive() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> PrintStreamWrapper.coalesce(core, 0, 0, TimeUnit.SECONDS))
+                .withMessageContaining("size");
+    }
+
+    @Test
+    public void maxDelayMustNotBeNegative() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> PrintStreamWrapper.coalesce(core, 1, -1, TimeUnit.SECONDS))
+                .withMessageContaining("maxDelay");
+    }
+
+    @Test
+    public void requiresUnit() {
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.coalesce(core, 1, 0, null))
+                                        .withMessageContaining("unit");
+    }
+
+    @Test
+    public void writesOnWhenFull() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 4, 0, TimeUnit.SECONDS);
+        //when
+        for (final char c : "abcdefg".toCharArray()) {
+            wrapper.write(c);
+        }
+        //then
+        assertThat(writes).containsExactly("abcd");
+    }
+
+    @Test
+    public void writesOnBeforeOverflowing() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 4, 0, TimeUnit.SECONDS);
+        //when
+        wrapper.print("abc");
+        wrapper.print("de");
+        //then
+        assertThat(writes).containsExactly("abc");
+    }
+
+    @Test
+    public void writesLargeWritesDirectly() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 4, 0, TimeUnit.SECONDS);
+        //when
+        wrapper.print("ab");
+        wrapper.print("cdefgh");
+        //then
+        assertThat(writes).containsExactly("ab", "cdefgh");
+    }
+
+    @Test
+    public void writesOnAtNewlineWhenRequested() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 0, TimeUnit.SECONDS, true);
+        //when
+        for (final char c : "ab\ncd".toCharArray()) {
+            wrapper.write(c);
+        }
+        wrapper.print("e\nf");
+        //then
+        assertThat(writes).containsExactly("ab\n", "cde\nf");
+    }
+
+    @Test
+    public void holdsNewlinesByDefault() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 0, TimeUnit.SECONDS);
+        //when
+        wrapper.print("a\nb\n");
+        //then
+        assertThat(writes).isEmpty();
+    }
+
+    @Test
+    public void flushWritesOnEverything() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 0, TimeUnit.SECONDS);
+        wrapper.write('a');
+        wrapper.print("bc");
+        //when
+        wrapper.flush();
+        //then
+        assertThat(writes).containsExactly("abc");
+    }
+
+    @Test
+    public void closeWritesOnEverything() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 0, TimeUnit.SECONDS);
+        wrapper.print("abc");
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("abc");
+    }
+
+    @Test
+    public void writesAfterCloseAreDropped() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 10, TimeUnit.MILLISECONDS);
+        wrapper.print("abc");
+        wrapper.close();
+        //when
+        wrapper.print("def");
+        Thread.sleep(50);
+        //then
+        assertThat(writes).containsExactly("abc");
+        assertThat(wrapper.checkError()).isTrue();
+    }
+
+    @Test
+    public void deadlineWritesOnFromOwnThreadWhichEndsWhenClosed() throws InterruptedException {
+        //given
+        final BlockingQueue<Thread> writers = new LinkedBlockingQueue<>();
+        final PrintStream recording = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writers.add(Thread.currentThread());
+                super.write(buf, off, len);
+            }
+        };
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(recording, 64, 10, TimeUnit.MILLISECONDS);
+        wrapper.print("abc");
+        final Thread writer = writers.poll(5, TimeUnit.SECONDS);
+        //when
+        wrapper.close();
+        //then
+        assertThat(writer).isNotNull();
+        assertThat(writer.getName()).isEqualTo("coalescing-print-stream");
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(writer.isAlive()).isFalse();
+    }
+
+    @Test
+    public void closeFromDeadlineWriteDoesNotWaitForItself() throws InterruptedException {
+        //given
+        final AtomicReference<PrintStream> wrapper = new AtomicReference<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final PrintStream closing = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                super.write(buf, off, len);
+                wrapper.get().close();
+                closed.countDown();
+            }
+        };
+        wrapper.set(PrintStreamWrapper.coalesce(closing, 64, 10, TimeUnit.MILLISECONDS));
+        //when
+        wrapper.get().print("abc");
+        //then
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(out.toString()).isEqualTo("abc");
+    }
+
+    @Test
+    public void writesOnAfterMaxDelay() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.coalesce(core, 64, 10, TimeUnit.MILLISECONDS);
+        //when
+        wrapper.print("abc");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writes.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        //then
+        assertThat(writes).containsExactly("abc");
+    }
+}
@@ -0,0 +1,157 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link CollapseRepeatsPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class CollapseRepeatsPrintStreamWrapperTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream core;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        core = new PrintStream(out);
+    }
+
+    @Test
+    public void requiresUnit() {
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.collapseRepeats(core, 1, null))
+                                        .withMessageContaining("unit");
+    }
+
+    @Test
+    public void timeoutMustNotBeNegative() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> PrintStreamWrapper.collapseRepeats(core, -1, TimeUnit.SECONDS))
+                .withMessageContaining("timeout");
+    }
+
+    @Test
+    public void writesDistinctLines() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        //when
+        wrapper.print("a\nb\na\n");
+        //then
+        assertThat(out.toString()).isEqualTo("a\nb\na\n");
+    }
+
+    @Test
+    public void collapsesRepeatsWhenRunEnds() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        //when
+        wrapper.print("a\na\na\nb\n");
+        //then
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL + "b\n");
+    }
+
+    @Test
+    public void recognisesRepeatsAcrossWrites() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        //when
+        wrapper.print("err");
+        wrapper.write('o');
+        wrapper.print("r\nerr");
+        wrapper.print("or\nerror\n");
+        wrapper.print("done\n");
+        //then
+        assertThat(out.toString()).isEqualTo("error\n(repeated 2 times)" + NL + "done\n");
+    }
+
+    @Test
+    public void linesOfSameLengthAreNotRepeats() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        //when
+        wrapper.print("ab\nba\n");
+        //then
+        assertThat(out.toString()).isEqualTo("ab\nba\n");
+    }
+
+    @Test
+    public void flushDoesNotEndRun() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        wrapper.print("a\na\n");
+        //when
+        wrapper.flush();
+        wrapper.print("a\nb\n");
+        //then
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL + "b\n");
+    }
+
+    @Test
+    public void collapsesRepeatsBehindAutoFlushPrintStream() {
+        //given
+        final PrintStream printStream = new PrintStream(PrintStreamWrapper.collapseRepeats(core), true);
+        //when
+        for (int i = 0; i < 5; i++) {
+            printStream.println("same");
+        }
+        printStream.println("other");
+        //then
+        assertThat(out.toString()).isEqualTo("same" + NL + "(repeated 4 times)" + NL + "other" + NL);
+    }
+
+    @Test
+    public void reportsRepeatsAndPartialLineOnClose() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core);
+        wrapper.print("a\na\na\nend");
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL + "end");
+    }
+
+    @Test
+    public void reportsRepeatsOnFlushAfterTimeout() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core, 10, TimeUnit.MILLISECONDS);
+        //when
+        wrapper.print("a\na\na\n");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!out.toString().contains("repeated") && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            wrapper.flush();
+        }
+        //then
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL);
+        wrapper.close();
+    }
+
+    @Test
+    public void reportsRepeatsOnNextWriteAfterTimeout() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.collapseRepeats(core, 10, TimeUnit.MILLISECONDS);
+        wrapper.print("a\na\na\n");
+        //when
+        Thread.sleep(50);
+        final String beforeWrite = out.toString();
+        wrapper.print("a\n");
+        //then
+        assertThat(beforeWrite).isEqualTo("a\n");
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL);
+        wrapper.close();
+        assertThat(out.toString()).isEqualTo("a\n(repeated 2 times)" + NL + "(repeated 1 times)" + NL);
+    }
+}
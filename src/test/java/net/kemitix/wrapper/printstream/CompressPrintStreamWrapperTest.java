@@ -0,0 +1,182 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.SyncFlush;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link CompressPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class CompressPrintStreamWrapperTest {
+
+    private static final int GZIP_HEADER_SIZE = 10;
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream target;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        target = new PrintStream(out);
+    }
+
+    private String decompress() throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                decompressed.write(buffer, 0, count);
+            }
+            return decompressed.toString();
+        }
+    }
+
+    /**
+     * Inflates whatever has been written so far, without needing the end of the stream.
+     */
+    private String inflateSoFar() throws DataFormatException {
+        final byte[] compressed = out.toByteArray();
+        final Inflater inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(compressed, GZIP_HEADER_SIZE, compressed.length));
+        final byte[] buffer = new byte[4096];
+        final int count = inflater.inflate(buffer);
+        inflater.end();
+        return new String(buffer, 0, count);
+    }
+
+    @Test
+    public void requireSyncFlush() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.compress(target, Deflater.BEST_SPEED, null))
+                .withMessageContaining("syncFlush");
+    }
+
+    @Test
+    public void rejectInvalidLevel() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> PrintStreamWrapper.compress(target, 10));
+    }
+
+    @Test
+    public void writesGzipReadableAfterClose() throws IOException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.DEFAULT_COMPRESSION);
+        //when
+        printStream.println("one");
+        printStream.print("two");
+        printStream.write('!');
+        final byte[] bytes = "\nthree".getBytes();
+        printStream.write(bytes, 0, bytes.length);
+        printStream.close();
+        //then
+        assertThat(decompress()).isEqualTo("one" + System.lineSeparator() + "two!\nthree");
+    }
+
+    @Test
+    public void emptyStreamIsValidGzip() throws IOException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.BEST_SPEED);
+        //when
+        printStream.close();
+        //then
+        assertThat(decompress()).isEmpty();
+    }
+
+    @Test
+    public void compressesRepetitiveText() throws IOException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.BEST_COMPRESSION);
+        final int lines = 1000;
+        final String line = "INFO  [main] net.kemitix.Service - request handled in 12ms";
+        //when
+        for (int i = 0; i < lines; i++) {
+            printStream.println(line);
+        }
+        printStream.close();
+        //then
+        assertThat(out.size()).isLessThan(lines * line.length() / 10);
+        assertThat(decompress().split(System.lineSeparator())).hasSize(lines);
+    }
+
+    @Test
+    public void flushMakesOutputReadable() throws DataFormatException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.DEFAULT_COMPRESSION);
+        printStream.print("before flush");
+        //when
+        printStream.flush();
+        //then
+        assertThat(inflateSoFar()).isEqualTo("before flush");
+    }
+
+    @Test
+    public void syncFlushOnNewline() throws DataFormatException {
+        //given
+        final PrintStream printStream =
+                PrintStreamWrapper.compress(target, Deflater.DEFAULT_COMPRESSION, SyncFlush.ON_NEWLINE);
+        //when
+        printStream.print("first line\n");
+        printStream.print("partial");
+        //then
+        assertThat(inflateSoFar()).isEqualTo("first line\n");
+    }
+
+    @Test
+    public void neverSyncFlushHoldsBackOutput() throws DataFormatException {
+        //given
+        final PrintStream printStream =
+                PrintStreamWrapper.compress(target, Deflater.DEFAULT_COMPRESSION, SyncFlush.NEVER);
+        //when
+        printStream.print("held back\n");
+        printStream.flush();
+        //then
+        assertThat(out.size()).isEqualTo(GZIP_HEADER_SIZE);
+        assertThat(inflateSoFar()).isEmpty();
+    }
+
+    @Test
+    public void writesAfterCloseAreAnError() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.BEST_SPEED);
+        printStream.close();
+        final int size = out.size();
+        //when
+        printStream.write('x');
+        //then
+        assertThat(printStream.checkError()).isTrue();
+        assertThat(out.size()).isEqualTo(size);
+    }
+
+    @Test
+    public void largeWritesAreCompressedInBlocks() throws IOException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.compress(target, Deflater.NO_COMPRESSION);
+        final byte[] large = new byte[100_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 26);
+        }
+        //when
+        printStream.write(large, 0, large.length);
+        printStream.close();
+        //then
+        assertThat(decompress().getBytes()).isEqualTo(large);
+    }
+}
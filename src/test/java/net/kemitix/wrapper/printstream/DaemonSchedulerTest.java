@@ -0,0 +1,61 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link DaemonScheduler}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class DaemonSchedulerTest {
+
+    @Test
+    public void runsTasksOnSharedDaemonThread() throws ExecutionException, InterruptedException {
+        //when
+        final Thread thread = DaemonScheduler.get()
+                                             .schedule(Thread::currentThread, 1, TimeUnit.MILLISECONDS)
+                                             .get();
+        //then
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(thread.getName()).isEqualTo("print-stream-wrapper-scheduler");
+        assertThat(DaemonScheduler.get()).isSameAs(DaemonScheduler.get());
+    }
+
+    @Test
+    public void weakTaskRunsAgainstOwner() throws InterruptedException {
+        //given
+        final AtomicInteger owner = new AtomicInteger();
+        //when
+        final ScheduledFuture<?> future =
+                DaemonScheduler.scheduleWeakly(owner, AtomicInteger::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (owner.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        future.cancel(false);
+        //then
+        assertThat(owner.get()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void weakTaskIsCancelledOnceOwnerIsCollected() throws InterruptedException {
+        //given
+        final ScheduledFuture<?> future = DaemonScheduler.scheduleWeakly(
+                new AtomicInteger(), AtomicInteger::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+        //when
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!future.isCancelled() && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(5);
+        }
+        //then
+        assertThat(future.isCancelled()).isTrue();
+    }
+}
@@ -0,0 +1,210 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link FanOutPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class FanOutPrintStreamWrapperTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream first = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream third = new ByteArrayOutputStream();
+
+    private final PrintStream primary = new PrintStream(out);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void requiresEachOtherPrintStream() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.fanOut(primary, new PrintStream(first), null))
+                .withMessageContaining("others");
+    }
+
+    @Test
+    public void requiresExecutor() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.fanOut((Executor) null, primary, new PrintStream(first)))
+                .withMessageContaining("executor");
+    }
+
+    @Test
+    public void copiesToAllPrintStreams() throws IOException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.fanOut(primary,
+                new PrintStream(first), new PrintStream(second), new PrintStream(third));
+        //when
+        wrapper.write("test".getBytes());
+        wrapper.write('x');
+        //then
+        assertThat(out.toString()).isEqualTo("testx");
+        assertThat(first.toString()).isEqualTo("testx");
+        assertThat(second.toString()).isEqualTo("testx");
+        assertThat(third.toString()).isEqualTo("testx");
+    }
+
+    @Test
+    public void flushesAllPrintStreams() {
+        //given
+        final CountingFlushes flushes = new CountingFlushes();
+        final PrintStream wrapper = PrintStreamWrapper.fanOut(primary, new PrintStream(flushes));
+        //when
+        wrapper.flush();
+        //then
+        assertThat(flushes.latch.getCount()).isZero();
+    }
+
+    @Test
+    public void recordsLatencyForEachOtherPrintStream() {
+        //given
+        final PrintStream firstStream = new PrintStream(first);
+        final PrintStream secondStream = new PrintStream(second);
+        final FanOutPrintStreamWrapper wrapper = PrintStreamWrapper.fanOut(primary, firstStream, secondStream);
+        //when
+        wrapper.print("test");
+        wrapper.write('x');
+        //then
+        final List<FanOutPrintStreamWrapper.SinkLatency> latencies = wrapper.getSinkLatencies();
+        assertThat(latencies).hasSize(2);
+        assertThat(latencies.get(0).getPrintStream()).isSameAs(firstStream);
+        assertThat(latencies.get(1).getPrintStream()).isSameAs(secondStream);
+        assertThat(latencies.get(0).getWrites()).isEqualTo(2);
+        assertThat(latencies.get(0).getMaxNanos()).isLessThanOrEqualTo(latencies.get(0).getTotalNanos());
+        assertThat(latencies.get(0).getMeanNanos()).isEqualTo(latencies.get(0).getTotalNanos() / 2);
+    }
+
+    @Test
+    public void meanLatencyIsZeroBeforeAnyWrites() {
+        //given
+        final FanOutPrintStreamWrapper wrapper = PrintStreamWrapper.fanOut(primary, new PrintStream(first));
+        //then
+        assertThat(wrapper.getSinkLatencies().get(0).getMeanNanos()).isZero();
+    }
+
+    @Test
+    public void whenExecutorThenCallerDoesNotWaitForOtherPrintStreams() throws InterruptedException {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final PrintStream slow = new PrintStream(first) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(buf, off, len);
+            }
+        };
+        final CountingFlushes flushes = new CountingFlushes();
+        final PrintStream wrapper = PrintStreamWrapper.fanOut(executor, primary, slow, new PrintStream(flushes));
+        //when
+        for (int i = 0; i < 100; i++) {
+            wrapper.print(i);
+            wrapper.write(',');
+        }
+        wrapper.flush();
+        //then
+        assertThat(out.toString()).startsWith("0,1,2,").endsWith("98,99,");
+        assertThat(flushes.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(flushes.toString()).isEqualTo(out.toString());
+        assertThat(first.size()).isZero();
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first.toString()).isEqualTo(out.toString());
+    }
+
+    @Test
+    public void whenOtherPrintStreamThrowsThenErrorIsSetAndLaterWritesArePassedOn() {
+        //given
+        final AtomicBoolean failNext = new AtomicBoolean(true);
+        final PrintStream failing = new PrintStream(first) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("write failed");
+                }
+                super.write(buf, off, len);
+            }
+        };
+        final Executor direct = Runnable::run;
+        final PrintStream wrapper = PrintStreamWrapper.fanOut(direct, primary, failing);
+        //when
+        wrapper.print("lost");
+        wrapper.print("kept");
+        //then
+        assertThat(first.toString()).isEqualTo("kept");
+        assertThat(wrapper.checkError()).isTrue();
+    }
+
+    @Test
+    public void whenExecutorRejectsThenErrorIsSetAndLaterWritesArePassedOn() {
+        //given
+        final AtomicBoolean rejectNext = new AtomicBoolean(true);
+        final Executor rejecting = task -> {
+            if (rejectNext.getAndSet(false)) {
+                throw new RejectedExecutionException("rejected");
+            }
+            task.run();
+        };
+        final PrintStream wrapper = PrintStreamWrapper.fanOut(rejecting, primary, new PrintStream(first));
+        //when
+        wrapper.print("lost");
+        wrapper.print("kept");
+        //then
+        assertThat(first.toString()).isEqualTo("kept");
+        assertThat(wrapper.checkError()).isTrue();
+    }
+
+    private static final class CountingFlushes extends OutputStream {
+
+        private final StringBuilder written = new StringBuilder();
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public synchronized void write(final int b) {
+            written.append((char) b);
+        }
+
+        @Override
+        public void flush() {
+            latch.countDown();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return written.toString();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link ForwardingPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class ForwardingPrintStreamWrapperTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private ByteArrayOutputStream targetOut;
+
+    private PrintStream original;
+
+    private PrintStream target;
+
+    private ForwardingPrintStreamWrapper wrapper;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        targetOut = new ByteArrayOutputStream();
+        original = new PrintStream(out);
+        target = new PrintStream(targetOut);
+        wrapper = new ForwardingPrintStreamWrapper(original) {
+            @Override
+            protected PrintStream target() {
+                return target;
+            }
+        };
+    }
+
+    @Test
+    public void forwardsEveryKindOfCallToTarget() {
+        //when
+        wrapper.print(true);
+        wrapper.print('c');
+        wrapper.print(1);
+        wrapper.print(2L);
+        wrapper.print(3.5f);
+        wrapper.print(4.5d);
+        wrapper.print(new char[]{'x', 'y'});
+        wrapper.print("s");
+        wrapper.print((Object) "o");
+        wrapper.println(false);
+        wrapper.println('d');
+        wrapper.println(5);
+        wrapper.println(6L);
+        wrapper.println(7.5f);
+        wrapper.println(8.5d);
+        wrapper.println(new char[]{'z'});
+        wrapper.println("t");
+        wrapper.println((Object) "p");
+        wrapper.println();
+        wrapper.printf("%s-", "f").printf(Locale.ROOT, "%.1f-", 1.5d);
+        wrapper.format("%s-", "g").format(Locale.ROOT, "%.1f-", 2.5d);
+        wrapper.append("ab").append("xcdx", 1, 3).append('e');
+        wrapper.write('w');
+        wrapper.write(new byte[]{'v', 'u'}, 1, 1);
+        //then
+        assertThat(targetOut.toString()).isEqualTo(
+                "truec123.54.5xysofalse" + EOL + "d" + EOL + "5" + EOL + "6" + EOL + "7.5" + EOL + "8.5" + EOL
+                + "z" + EOL + "t" + EOL + "p" + EOL + EOL + "f-1.5-g-2.5-abcdewu");
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void targetSeesTypedCalls() {
+        //given
+        target = PrintStreamWrapper.filter(new PrintStream(targetOut), (String s) -> !s.contains("drop"));
+        //when
+        wrapper.println("drop");
+        wrapper.println("keep");
+        //then
+        assertThat(targetOut.toString()).isEqualTo("keep" + EOL);
+    }
+
+    @Test
+    public void wrapsOriginal() {
+        assertThat(wrapper.getWrapperSubject()).isSameAs(original);
+        assertThat(wrapper.getInnerWrapper()).isNotEmpty();
+    }
+
+    @Test
+    public void releasesEachTargetAfterTheCall() {
+        //given
+        final List<String> events = new ArrayList<>();
+        final PrintStream failing = new PrintStream(targetOut) {
+            @Override
+            public void print(final String s) {
+                events.add("print " + s);
+                throw new IllegalStateException(s);
+            }
+        };
+        final ForwardingPrintStreamWrapper releasing = new ForwardingPrintStreamWrapper(original) {
+            @Override
+            protected PrintStream target() {
+                events.add("target");
+                return failing;
+            }
+
+            @Override
+            protected void release(final PrintStream released) {
+                events.add(released == failing ? "release" : "release other");
+            }
+        };
+        //when
+        assertThatIllegalStateException().isThrownBy(() -> releasing.print("boom"));
+        releasing.print(1);
+        //then
+        assertThat(events).containsExactly("target", "print boom", "release", "target", "release");
+    }
+}
@@ -0,0 +1,200 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link GroupCommitOutputStream}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class GroupCommitOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(final GroupCommitOutputStream out, final String text) throws IOException {
+        final byte[] bytes = text.getBytes();
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String read(final Path path) throws IOException {
+        return new String(Files.readAllBytes(path));
+    }
+
+    @Test
+    public void requirePositiveCommitBytes() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new GroupCommitOutputStream(folder.newFile().toPath(), 0, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requireNonNegativeCommitDelay() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new GroupCommitOutputStream(folder.newFile().toPath(), 1, -1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void commitsWhenBytesThresholdReached() throws Exception {
+        //given
+        final Path path = folder.newFile().toPath();
+        try (GroupCommitOutputStream out = new GroupCommitOutputStream(path, 10, 1, TimeUnit.HOURS)) {
+            write(out, "12345");
+            final CompletableFuture<Void> durable = out.durable();
+            assertThat(durable).isNotDone();
+            //when
+            write(out, "67890");
+            //then
+            durable.get(5, TimeUnit.SECONDS);
+            assertThat(read(path)).isEqualTo("1234567890");
+            assertThat(out.getCommitStats().getCommits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void commitsWhenDelayPassed() throws Exception {
+        //given
+        final Path path = folder.newFile().toPath();
+        try (GroupCommitOutputStream out = new GroupCommitOutputStream(path, 1024, 20, TimeUnit.MILLISECONDS)) {
+            //when
+            write(out, "abc");
+            out.write('d');
+            out.durable().get(5, TimeUnit.SECONDS);
+            //then
+            assertThat(read(path)).isEqualTo("abcd");
+        }
+    }
+
+    @Test
+    public void flushCommitsImmediately() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        try (GroupCommitOutputStream out = new GroupCommitOutputStream(path, 1024, 1, TimeUnit.HOURS)) {
+            write(out, "flushed");
+            //when
+            out.flush();
+            //then
+            assertThat(read(path)).isEqualTo("flushed");
+            assertThat(out.durable()).isDone();
+        }
+    }
+
+    @Test
+    public void closeCommitsRemainingBytes() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        Files.write(path, "existing\n".getBytes());
+        final GroupCommitOutputStream out = new GroupCommitOutputStream(path, 1024, 1, TimeUnit.HOURS);
+        write(out, "appended");
+        //when
+        out.close();
+        out.close();
+        //then
+        assertThat(read(path)).isEqualTo("existing\nappended");
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> out.write('x'));
+    }
+
+    @Test
+    public void batchesSpanSegments() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final byte[] large = new byte[200 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) ('a' + i % 26);
+        }
+        try (GroupCommitOutputStream out = new GroupCommitOutputStream(path, 1024 * 1024, 1, TimeUnit.HOURS)) {
+            //when
+            out.write(large, 0, large.length);
+            out.flush();
+            out.write(large, 0, large.length);
+            out.flush();
+            //then
+            assertThat(out.getCommitStats().getCommits()).isEqualTo(2);
+            assertThat(out.getCommitStats().getBytes()).isEqualTo(2L * large.length);
+            assertThat(out.getCommitStats().getMaxBatchBytes()).isEqualTo(large.length);
+            assertThat(out.getCommitStats().getMeanBatchBytes()).isEqualTo(large.length);
+        }
+        final byte[] written = Files.readAllBytes(path);
+        assertThat(written).hasSize(2 * large.length);
+        for (int i = 0; i < written.length; i++) {
+            assertThat(written[i]).isEqualTo(large[i % large.length]);
+        }
+    }
+
+    @Test
+    public void groupsWritesFromManyThreads() throws Exception {
+        //given
+        final Path path = folder.newFile().toPath();
+        final int threads = 8;
+        final int lines = 100;
+        try (GroupCommitOutputStream out = new GroupCommitOutputStream(path, 4096, 5, TimeUnit.MILLISECONDS)) {
+            final PrintStream printStream = new PrintStream(out);
+            final List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < lines; i++) {
+                        printStream.print("thread " + id + " line " + i + "\n");
+                    }
+                }));
+            }
+            //when
+            writers.forEach(Thread::start);
+            for (final Thread writer : writers) {
+                writer.join();
+            }
+            out.durable().get(5, TimeUnit.SECONDS);
+            //then
+            final GroupCommitOutputStream.CommitStats stats = out.getCommitStats();
+            assertThat(stats.getCommits()).isLessThan(threads * lines);
+            assertThat(stats.getMeanNanos()).isPositive();
+            assertThat(stats.getMaxNanos()).isGreaterThanOrEqualTo(stats.getMeanNanos());
+            assertThat(stats.getTotalNanos()).isPositive();
+        }
+        assertThat(read(path).split("\n")).hasSize(threads * lines)
+                                          .allMatch(line -> line.matches("thread \\d line \\d+"));
+    }
+
+    @Test
+    public void emptyStreamHasNoCommits() throws IOException {
+        //given
+        try (GroupCommitOutputStream out =
+                     new GroupCommitOutputStream(folder.newFile().toPath(), 1, 1, TimeUnit.SECONDS)) {
+            //then
+            assertThat(out.durable()).isDone();
+            assertThat(out.getCommitStats().getCommits()).isZero();
+            assertThat(out.getCommitStats().getMeanBatchBytes()).isZero();
+            assertThat(out.getCommitStats().getMeanNanos()).isZero();
+        }
+    }
+
+    @Test
+    public void usableAsCopyTarget() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final GroupCommitOutputStream file = new GroupCommitOutputStream(path, 1024, 1, TimeUnit.HOURS);
+        final PrintStream printStream =
+                PrintStreamWrapper.copy(new PrintStream(new ByteArrayOutputStream()), new PrintStream(file));
+        //when
+        printStream.print("copied\n");
+        file.close();
+        //then
+        assertThat(read(path)).isEqualTo("copied\n");
+    }
+}
@@ -0,0 +1,157 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Instrumentation}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class InstrumentationTest {
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream core;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        core = new PrintStream(out);
+    }
+
+    @After
+    public void tearDown() {
+        Instrumentation.setEnabled(false);
+    }
+
+    @Test
+    public void offByDefault() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(core, (Byte b) -> true);
+        //then
+        assertThat(Instrumentation.isEnabled()).isFalse();
+        assertThat(Instrumentation.metricsOf(wrapper)).isEmpty();
+    }
+
+    @Test
+    public void onlyWrappersAreInstrumented() {
+        //given
+        Instrumentation.setEnabled(true);
+        //then
+        assertThat(Instrumentation.metricsOf(core)).isEmpty();
+    }
+
+    @Test
+    public void recordsEachStage() {
+        //given
+        Instrumentation.setEnabled(true);
+        final PrintStream filter = PrintStreamWrapper.filter(core, (Byte b) -> b != 'X');
+        final PrintStream transform = PrintStreamWrapper.transform(filter, (Byte b) -> (byte) Character.toUpperCase(b));
+        //when
+        transform.print("axb\nc\n");
+        //then
+        assertThat(out.toString()).isEqualTo("AB\nC\n");
+        final StageMetrics transformMetrics = Instrumentation.metricsOf(transform).orElseThrow(AssertionError::new);
+        assertThat(transformMetrics.getBytesIn()).isEqualTo(6);
+        assertThat(transformMetrics.getBytesOut()).isEqualTo(6);
+        assertThat(transformMetrics.getLines()).isEqualTo(2);
+        final StageMetrics filterMetrics = Instrumentation.metricsOf(filter).orElseThrow(AssertionError::new);
+        assertThat(filterMetrics.getBytesIn()).isEqualTo(6);
+        assertThat(filterMetrics.getBytesOut()).isEqualTo(5);
+        assertThat(filterMetrics.getDroppedBytes()).isEqualTo(1);
+        assertThat(filterMetrics.getWrites()).isGreaterThan(0);
+        assertThat(Instrumentation.getStages()).contains(transformMetrics, filterMetrics);
+    }
+
+    @Test
+    public void stringFilterCountsDroppedStrings() {
+        //given
+        Instrumentation.setEnabled(true);
+        final PrintStream wrapper = PrintStreamWrapper.filter(core, (String s) -> !s.contains("x"));
+        //when
+        wrapper.print("x");
+        wrapper.println("xy");
+        wrapper.print("abc");
+        //then
+        final StageMetrics metrics = Instrumentation.metricsOf(wrapper).orElseThrow(AssertionError::new);
+        assertThat(metrics.getBytesIn()).isEqualTo(6 + System.lineSeparator().length());
+        assertThat(metrics.getBytesOut()).isEqualTo(3);
+        assertThat(metrics.getDroppedBytes()).isEqualTo(3 + System.lineSeparator().length());
+    }
+
+    @Test
+    public void stringTransformCountsStringsBeforeAndAfter() {
+        //given
+        Instrumentation.setEnabled(true);
+        final PrintStream wrapper = PrintStreamWrapper.transform(core, (PrintStreamWrapper.StringTransform) s -> s + s);
+        //when
+        wrapper.print("ab");
+        wrapper.println("c");
+        //then
+        final StageMetrics metrics = Instrumentation.metricsOf(wrapper).orElseThrow(AssertionError::new);
+        assertThat(out.toString()).isEqualTo("abab" + "cc" + System.lineSeparator());
+        assertThat(metrics.getBytesIn()).isEqualTo(3 + System.lineSeparator().length());
+        assertThat(metrics.getBytesOut()).isEqualTo(6 + System.lineSeparator().length());
+        assertThat(metrics.getLines()).isEqualTo(1);
+    }
+
+    @Test
+    public void unregistersStagesThatAreGarbageCollected() throws InterruptedException {
+        //given
+        Instrumentation.setEnabled(true);
+        final StageMetrics metrics = Instrumentation.metricsOf(PrintStreamWrapper.filter(core, (Byte b) -> true))
+                                                    .orElseThrow(AssertionError::new);
+        //when
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Instrumentation.getStages().contains(metrics) && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        //then
+        assertThat(Instrumentation.getStages()).doesNotContain(metrics);
+    }
+
+    @Test
+    public void registersWithJmxUntilClosed() throws Exception {
+        //given
+        Instrumentation.setEnabled(true);
+        final PrintStream wrapper = PrintStreamWrapper.filter(core, (Byte b) -> true);
+        final StageMetrics metrics = Instrumentation.metricsOf(wrapper).orElseThrow(AssertionError::new);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(Instrumentation.DOMAIN + ":type=Stage,name=" + metrics.getName());
+        wrapper.print("abc");
+        //then
+        assertThat(metrics.getName()).startsWith("ByteFilterPrintStreamWrapper-");
+        assertThat(server.isRegistered(name)).isTrue();
+        assertThat(server.getAttribute(name, "BytesOut")).isEqualTo(3L);
+        //when
+        wrapper.close();
+        //then
+        assertThat(server.isRegistered(name)).isFalse();
+        assertThat(Instrumentation.getStages()).doesNotContain(metrics);
+    }
+
+    @Test
+    public void existingWrappersAreNotChanged() {
+        //given
+        Instrumentation.setEnabled(true);
+        final PrintStream wrapper = PrintStreamWrapper.filter(core, (Byte b) -> true);
+        //when
+        Instrumentation.setEnabled(false);
+        //then
+        assertThat(Instrumentation.metricsOf(wrapper)).isPresent();
+        assertThat(Instrumentation.metricsOf(PrintStreamWrapper.filter(core, (Byte b) -> true))).isEmpty();
+        wrapper.close();
+    }
+}
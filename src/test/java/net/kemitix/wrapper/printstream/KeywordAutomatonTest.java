@@ -0,0 +1,104 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link KeywordAutomaton}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class KeywordAutomatonTest {
+
+    private final KeywordAutomaton automaton =
+            new KeywordAutomaton(Arrays.asList("he".getBytes(), "she".getBytes(), "his".getBytes(),
+                                               "hers".getBytes()));
+
+    private boolean find(final String text) {
+        final byte[] bytes = text.getBytes();
+        return automaton.find(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void requireKeywords() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> new KeywordAutomaton(null))
+                .withMessageContaining("keywords");
+    }
+
+    @Test
+    public void rejectEmptyKeyword() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new KeywordAutomaton(Collections.singletonList(new byte[0])));
+    }
+
+    @Test
+    public void findsEachKeyword() {
+        assertThat(find("a he b")).isTrue();
+        assertThat(find("ushe")).isTrue();
+        assertThat(find("this")).isTrue();
+        assertThat(find("hers")).isTrue();
+    }
+
+    @Test
+    public void findsKeywordAfterFalseStart() {
+        //given
+        final KeywordAutomaton aab = new KeywordAutomaton(Collections.singletonList("aab".getBytes()));
+        final byte[] bytes = "aaab".getBytes();
+        //then
+        assertThat(aab.find(bytes, 0, bytes.length)).isTrue();
+    }
+
+    @Test
+    public void findsKeywordThatIsSuffixOfAnother() {
+        //given
+        final KeywordAutomaton suffix =
+                new KeywordAutomaton(Arrays.asList("abcd".getBytes(), "bc".getBytes()));
+        final byte[] bytes = "xabcx".getBytes();
+        //then
+        assertThat(suffix.find(bytes, 0, bytes.length)).isTrue();
+    }
+
+    @Test
+    public void doesNotFindAbsentKeywords() {
+        assertThat(find("h e s h i")).isFalse();
+        assertThat(find("")).isFalse();
+    }
+
+    @Test
+    public void onlyScansRange() {
+        //given
+        final byte[] bytes = "she".getBytes();
+        //then
+        assertThat(automaton.find(bytes, 0, 2)).isFalse();
+        assertThat(automaton.find(bytes, 1, 2)).isTrue();
+    }
+
+    @Test
+    public void stateCarriesAcrossCalls() {
+        //given
+        int state = KeywordAutomaton.START;
+        //when
+        state = automaton.next(state, (byte) 's');
+        state = automaton.next(state, (byte) 'h');
+        //then
+        assertThat(automaton.isMatch(state)).isFalse();
+        assertThat(automaton.isMatch(automaton.next(state, (byte) 'e'))).isTrue();
+    }
+
+    @Test
+    public void matchesNonAsciiBytes() {
+        //given
+        final KeywordAutomaton high =
+                new KeywordAutomaton(Collections.singletonList(new byte[]{(byte) 0xC3, (byte) 0xA9}));
+        final byte[] bytes = {'x', (byte) 0xC3, (byte) 0xA9};
+        //then
+        assertThat(high.find(bytes, 0, bytes.length)).isTrue();
+    }
+}
@@ -0,0 +1,143 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.KeywordMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link KeywordFilterPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class KeywordFilterPrintStreamWrapperTest {
+
+    private final Collection<String> keywords = Arrays.asList("ERROR", "FATAL", "panic");
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream original;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        original = new PrintStream(out);
+    }
+
+    private void writeAll(final PrintStream printStream, final String text) {
+        final byte[] bytes = text.getBytes();
+        printStream.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void requireKeywords() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.filter(original, null, KeywordMode.INCLUDE))
+                .withMessageContaining("keywords");
+    }
+
+    @Test
+    public void requireMode() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.filter(original, keywords, null))
+                .withMessageContaining("mode");
+    }
+
+    @Test
+    public void includesLinesWithAnyKeyword() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.INCLUDE);
+        //when
+        writeAll(wrapper, "ok\nan ERROR\nfine\ndon't panic\nFATAL!\nERR\n");
+        //then
+        assertThat(out.toString()).isEqualTo("an ERROR\ndon't panic\nFATAL!\n");
+    }
+
+    @Test
+    public void excludesLinesWithAnyKeyword() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.EXCLUDE);
+        //when
+        writeAll(wrapper, "ok\nan ERROR\nfine\ndon't panic\nFATAL!\nERR\n");
+        //then
+        assertThat(out.toString()).isEqualTo("ok\nfine\nERR\n");
+    }
+
+    @Test
+    public void findsKeywordSplitAcrossWrites() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.INCLUDE);
+        //when
+        wrapper.print("an ER");
+        wrapper.write('R');
+        wrapper.print("OR here\nan ER");
+        wrapper.print("\nROR\n");
+        //then
+        assertThat(out.toString()).isEqualTo("an ERROR here\n");
+    }
+
+    @Test
+    public void doesNotCarryMatchIntoNextLine() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.EXCLUDE);
+        //when
+        wrapper.print("FATAL and more");
+        wrapper.print(" text\nnext");
+        wrapper.println(" line");
+        //then
+        assertThat(out.toString()).isEqualTo("next line" + System.lineSeparator());
+    }
+
+    @Test
+    public void includesRestOfMatchedLineAsItArrives() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.INCLUDE);
+        //when
+        wrapper.print("before panic");
+        wrapper.print(" after");
+        //then
+        assertThat(out.toString()).isEqualTo("before panic after");
+    }
+
+    @Test
+    public void closeWritesPartialLineWithoutKeywordWhenExcluding() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.EXCLUDE);
+        wrapper.print("tail");
+        assertThat(out.toString()).isEmpty();
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("tail");
+    }
+
+    @Test
+    public void closeDropsPartialLineWithoutKeywordWhenIncluding() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, keywords, KeywordMode.INCLUDE);
+        wrapper.print("tail");
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void noKeywordsMatchNothing() {
+        //given
+        final PrintStream wrapper =
+                PrintStreamWrapper.filter(original, Collections.emptySet(), KeywordMode.EXCLUDE);
+        //when
+        wrapper.println("anything");
+        //then
+        assertThat(out.toString()).isEqualTo("anything" + System.lineSeparator());
+    }
+}
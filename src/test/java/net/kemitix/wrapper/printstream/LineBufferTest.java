@@ -0,0 +1,98 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link LineBuffer}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class LineBufferTest {
+
+    private final LineBuffer lineBuffer = new LineBuffer();
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final List<byte[]> arrays = new ArrayList<>();
+
+    private final LineBuffer.LineConsumer consumer = (buf, off, len) -> {
+        arrays.add(buf);
+        lines.add(new String(buf, off, len));
+    };
+
+    @Test
+    public void passesCompleteLinesFromCallersBuffer() {
+        //given
+        final byte[] buf = "xa\nbc\nx".getBytes();
+        //when
+        lineBuffer.write(buf, 1, 5, consumer);
+        //then
+        assertThat(lines).containsExactly("a\n", "bc\n");
+        assertThat(arrays).allMatch(array -> array == buf);
+        assertThat(lineBuffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void holdsPartialLineUntilComplete() {
+        //when
+        lineBuffer.write("ab".getBytes(), 0, 2, consumer);
+        //then
+        assertThat(lines).isEmpty();
+        assertThat(lineBuffer.isEmpty()).isFalse();
+        //when
+        lineBuffer.write("c\nd".getBytes(), 0, 3, consumer);
+        //then
+        assertThat(lines).containsExactly("abc\n");
+    }
+
+    @Test
+    public void assemblesLinesFromSingleBytes() {
+        //when
+        for (final byte b : "a\nb\n".getBytes()) {
+            lineBuffer.write(b, consumer);
+        }
+        //then
+        assertThat(lines).containsExactly("a\n", "b\n");
+    }
+
+    @Test
+    public void growsForLongLines() {
+        //given
+        final StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longLine.append('x');
+        }
+        final byte[] bytes = longLine.toString().getBytes();
+        //when
+        lineBuffer.write(bytes, 0, bytes.length, consumer);
+        lineBuffer.write(bytes, 0, bytes.length, consumer);
+        lineBuffer.write('\n', consumer);
+        //then
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).hasSize(2001);
+    }
+
+    @Test
+    public void drainPassesPartialLine() {
+        //given
+        lineBuffer.write("ab".getBytes(), 0, 2, consumer);
+        //when
+        lineBuffer.drain(consumer);
+        lineBuffer.drain(consumer);
+        //then
+        assertThat(lines).containsExactly("ab");
+        assertThat(lineBuffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void rejectsRangeOutsideBuffer() {
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+                .isThrownBy(() -> lineBuffer.write(new byte[2], 1, 2, consumer));
+    }
+}
@@ -0,0 +1,143 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.ByteLineFilter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link LineFilterPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class LineFilterPrintStreamWrapperTest {
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream original;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        original = new PrintStream(out);
+    }
+
+    @Test
+    public void requireFilter() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.filter(original, (ByteLineFilter) null))
+                .withMessageContaining("filter");
+    }
+
+    @Test
+    public void passesLinesThatContainText() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, ByteLineFilter.contains("ERROR"));
+        //when
+        wrapper.println("INFO started");
+        wrapper.println("an ERROR here");
+        wrapper.print("WARN ");
+        wrapper.println("no");
+        //then
+        assertThat(out.toString()).isEqualTo("an ERROR here" + System.lineSeparator());
+    }
+
+    @Test
+    public void filtersEveryRouteIntoTheStream() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, ByteLineFilter.startsWith("keep"));
+        //when
+        wrapper.printf("keep %d%n", 1);
+        wrapper.write('d');
+        wrapper.write('\n');
+        final byte[] bytes = "drop\nkeep 2\n".getBytes();
+        wrapper.write(bytes, 0, bytes.length);
+        wrapper.print('k');
+        wrapper.print("eep 3\n");
+        //then
+        assertThat(out.toString()).isEqualTo("keep 1" + System.lineSeparator() + "keep 2\nkeep 3\n");
+    }
+
+    @Test
+    public void startsWithOnlyMatchesAtStartOfLine() {
+        //given
+        final ByteLineFilter filter = ByteLineFilter.startsWith("ab");
+        final byte[] line = "xab\n".getBytes();
+        //then
+        assertThat(filter.test(line, 0, line.length)).isFalse();
+        assertThat(filter.test(line, 1, 3)).isTrue();
+        assertThat(filter.test(line, 1, 1)).isFalse();
+    }
+
+    @Test
+    public void containsDoesNotMatchBeyondLine() {
+        //given
+        final ByteLineFilter filter = ByteLineFilter.contains("cd");
+        final byte[] bytes = "abcd".getBytes();
+        //then
+        assertThat(filter.test(bytes, 0, 3)).isFalse();
+        assertThat(filter.test(bytes, 1, 3)).isTrue();
+    }
+
+    @Test
+    public void matchesEncodedText() {
+        //given
+        final ByteLineFilter filter = ByteLineFilter.contains("été", StandardCharsets.UTF_8);
+        final byte[] bytes = "un été\n".getBytes(StandardCharsets.UTF_8);
+        //then
+        assertThat(filter.test(bytes, 0, bytes.length)).isTrue();
+    }
+
+    @Test
+    public void combinesFilters() {
+        //given
+        final ByteLineFilter a = ByteLineFilter.contains("a");
+        final ByteLineFilter b = ByteLineFilter.contains("b");
+        final byte[] ab = "ab".getBytes();
+        final byte[] bOnly = "b".getBytes();
+        //then
+        assertThat(a.and(b).test(ab, 0, 2)).isTrue();
+        assertThat(a.and(b).test(bOnly, 0, 1)).isFalse();
+        assertThat(a.or(b).test(bOnly, 0, 1)).isTrue();
+        assertThat(a.negate().test(bOnly, 0, 1)).isTrue();
+    }
+
+    @Test
+    public void closeWritesPassingPartialLine() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.filter(original, ByteLineFilter.contains("keep"));
+        wrapper.print("keep");
+        assertThat(out.toString()).isEmpty();
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("keep");
+    }
+
+    @Test
+    public void writesEachPassingLineOnce() {
+        //given
+        final int[] writes = new int[1];
+        final PrintStream counting = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes[0]++;
+                super.write(buf, off, len);
+            }
+        };
+        final PrintStream wrapper = PrintStreamWrapper.filter(counting, ByteLineFilter.contains("a"));
+        //when
+        wrapper.print("a");
+        wrapper.print("b");
+        wrapper.print("c\n");
+        //then
+        assertThat(writes[0]).isEqualTo(1);
+        assertThat(out.toString()).isEqualTo("abc\n");
+    }
+}
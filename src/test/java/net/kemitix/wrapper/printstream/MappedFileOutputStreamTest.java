@@ -0,0 +1,138 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link MappedFileOutputStream}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class MappedFileOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedFileOutputStream open(final Path path) throws IOException {
+        return new MappedFileOutputStream(path, 8, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static void write(final MappedFileOutputStream out, final String text) throws IOException {
+        final byte[] bytes = text.getBytes();
+        out.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void requirePositiveWindowSize() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new MappedFileOutputStream(folder.newFile().toPath(), 0, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requireNonNegativeForceInterval() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new MappedFileOutputStream(folder.newFile().toPath(), 8, -1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void writesAcrossWindowsAndTruncatesOnClose() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final MappedFileOutputStream out = open(path);
+        //when
+        write(out, "0123456789abcdefghij");
+        out.write('k');
+        assertThat(out.getLength()).isEqualTo(21);
+        out.close();
+        //then
+        assertThat(new String(Files.readAllBytes(path))).isEqualTo("0123456789abcdefghijk");
+    }
+
+    @Test
+    public void appendsToExistingFile() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        Files.write(path, "existing\n".getBytes());
+        //when
+        try (MappedFileOutputStream out = open(path)) {
+            write(out, "appended");
+        }
+        //then
+        assertThat(new String(Files.readAllBytes(path))).isEqualTo("existing\nappended");
+    }
+
+    @Test
+    public void writesAreVisibleBeforeClose() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final MappedFileOutputStream out = open(path);
+        //when
+        write(out, "abc");
+        out.force();
+        //then
+        assertThat(new String(Files.readAllBytes(path), 0, 3)).isEqualTo("abc");
+        out.close();
+    }
+
+    @Test
+    public void writesAfterCloseFail() throws IOException {
+        //given
+        final MappedFileOutputStream out = open(folder.newFile().toPath());
+        out.close();
+        out.close();
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> out.write('x'));
+    }
+
+    @Test
+    public void forcesOnInterval() throws IOException, InterruptedException {
+        //given
+        final Path path = folder.newFile().toPath();
+        try (MappedFileOutputStream out = new MappedFileOutputStream(path, 1024, 10, TimeUnit.MILLISECONDS)) {
+            //when
+            write(out, "forced");
+            Thread.sleep(50);
+            //then
+            assertThat(new String(Files.readAllBytes(path), 0, 6)).isEqualTo("forced");
+        }
+    }
+
+    @Test
+    public void closeStopsForcingThread() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final MappedFileOutputStream out = new MappedFileOutputStream(path, 1024, 10, TimeUnit.MILLISECONDS);
+        //when
+        out.close();
+        //then
+        assertThat(Thread.getAllStackTraces().keySet())
+                .noneMatch(thread -> "mapped-file-output-stream".equals(thread.getName()));
+    }
+
+    @Test
+    public void usableAsCopyTarget() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        final MappedFileOutputStream file = new MappedFileOutputStream(path);
+        final PrintStream printStream =
+                PrintStreamWrapper.copy(new PrintStream(new ByteArrayOutputStream()), new PrintStream(file));
+        //when
+        printStream.print("copied\n");
+        file.close();
+        //then
+        assertThat(new String(Files.readAllBytes(path))).isEqualTo("copied\n");
+    }
+}
@@ -0,0 +1,246 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.Wrapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link PrintStreamPipeline} and {@link PipelinePrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class PrintStreamPipelineTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final PrintStream core = new PrintStream(out);
+
+    private final ByteArrayOutputStream copyArray = new ByteArrayOutputStream();
+
+    private final PrintStream copy = new PrintStream(copyArray);
+
+    @Test
+    public void requiresCore() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> PrintStreamWrapper.pipeline(null))
+                .withMessageContaining("core");
+    }
+
+    @Test
+    public void emptyPipelinePassesEverythingThrough() throws IOException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core).build();
+        //when
+        printStream.print("a");
+        printStream.write('b');
+        printStream.write("cd".getBytes());
+        printStream.println("e");
+        //then
+        assertThat(out.toString()).isEqualTo("abcde" + System.lineSeparator());
+    }
+
+    @Test
+    public void canUnwrapToCore() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core).build();
+        //when
+        final Optional<Wrapper<PrintStream>> result = PrintStreamWrapper.unwrap(printStream);
+        //then
+        assertThat(result).isNotEmpty();
+        result.ifPresent(wrapper -> assertThat(wrapper.getWrapperSubject()).isSameAs(core));
+    }
+
+    @Test
+    public void matchesUsageExampleChain() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .transformString(String::toUpperCase)
+                .copy(copy)
+                .filterString(o -> o.contains("ERROR"))
+                .build();
+        //when
+        printStream.println("This is an error message");
+        printStream.println("This is an ordinary message");
+        //then
+        assertThat(out.toString()).isEqualTo("THIS IS AN ERROR MESSAGE" + System.lineSeparator());
+        assertThat(copyArray.toString()).contains("THIS IS AN ERROR MESSAGE", "THIS IS AN ORDINARY MESSAGE");
+    }
+
+    @Test
+    public void stringStagesAfterByteStagesApplyToEachLine() throws IOException {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform upper = b -> (byte) Character.toUpperCase(b);
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .transform(upper)
+                .filterString(o -> o.contains("ERROR"))
+                .transformString(s -> "> " + s)
+                .build();
+        //when
+        printStream.print("an ");
+        printStream.println("error");
+        printStream.write("ordinary\r\nerror\r\n".getBytes());
+        printStream.print("error");
+        //then
+        assertThat(out.toString()).isEqualTo("> AN ERROR" + System.lineSeparator() + "> ERROR\r\n");
+    }
+
+    @Test
+    public void partialLineIsPassedOnWhenClosed() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .copy(copy)
+                .transformString(String::toUpperCase)
+                .build();
+        printStream.print("partial");
+        //when
+        printStream.close();
+        //then
+        assertThat(out.toString()).isEqualTo("PARTIAL");
+    }
+
+    @Test
+    public void nullStringIsPrintedAsByNestedWrappers() {
+        //given
+        final ByteArrayOutputStream nestedOut = new ByteArrayOutputStream();
+        final PrintStream nested = PrintStreamWrapper.transform(
+                PrintStreamWrapper.filter(new PrintStream(nestedOut), (String o) -> true),
+                (PrintStreamWrapper.StringTransform) s -> s);
+        final PrintStream fused = PrintStreamWrapper.pipeline(core)
+                .transformString(s -> s)
+                .filterString(o -> true)
+                .build();
+        //when
+        for (final PrintStream printStream : Arrays.asList(nested, fused)) {
+            printStream.print((String) null);
+            printStream.println((String) null);
+        }
+        //then
+        assertThat(out.toString()).isEqualTo(nestedOut.toString())
+                                  .isEqualTo("nullnull" + System.lineSeparator());
+    }
+
+    @Test
+    public void stringStagesApplyInOrder() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .transformString(String::toUpperCase)
+                .filterString(o -> o.contains("ERROR"))
+                .transformString(s -> "> " + s)
+                .build();
+        //when
+        printStream.println("an error");
+        printStream.println("ordinary");
+        printStream.print("error");
+        printStream.print("other");
+        //then
+        assertThat(out.toString()).isEqualTo("> AN ERROR" + System.lineSeparator() + "> ERROR");
+    }
+
+    @Test
+    public void adjacentByteStagesAreAppliedInOrder() throws IOException {
+        //given
+        final PrintStreamWrapper.PrimitiveByteTransform toB = b -> (byte) (b == 'a' ? 'b' : b);
+        final PrintStreamWrapper.PrimitiveByteFilter dropB = b -> b != 'b';
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .filter(b -> b != 'x')
+                .transform(toB)
+                .filter(dropB)
+                .transform(b -> (byte) Character.toUpperCase(b))
+                .build();
+        //when
+        printStream.write("axbcx".getBytes());
+        printStream.write('c');
+        printStream.write('a');
+        //then
+        assertThat(out.toString()).isEqualTo("CC");
+    }
+
+    @Test
+    public void copySeesBytesFromEarlierStagesOnly() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter dropE = b -> b != 'e';
+        final PrintStreamWrapper.PrimitiveByteTransform upper = b -> (byte) Character.toUpperCase(b);
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core)
+                .filter(dropE)
+                .copy(copy)
+                .transform(upper)
+                .build();
+        //when
+        printStream.print("test");
+        //then
+        assertThat(copyArray.toString()).isEqualTo("tst");
+        assertThat(out.toString()).isEqualTo("TST");
+    }
+
+    @Test
+    public void fusedStagesWriteOnceDownstreamPerBuffer() {
+        //given
+        final AtomicInteger writes = new AtomicInteger();
+        final PrintStream counting = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes.incrementAndGet();
+                super.write(buf, off, len);
+            }
+        };
+        final PrintStreamWrapper.PrimitiveByteFilter keepAll = b -> true;
+        final PrintStreamWrapper.PrimitiveByteTransform same = b -> b;
+        final PrintStream printStream = PrintStreamWrapper.pipeline(counting)
+                .filter(keepAll).transform(same).filter(keepAll).transform(same)
+                .build();
+        final byte[] line = new byte[4096];
+        Arrays.fill(line, (byte) 'a');
+        //when
+        printStream.write(line, 0, line.length);
+        //then
+        assertThat(writes.get()).isEqualTo(1);
+        assertThat(out.size()).isEqualTo(4096);
+    }
+
+    @Test
+    public void canWriteBufferLargerThanScratchBuffer() {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter dropA = b -> b != 'a';
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core).filter(dropA).copy(copy).build();
+        final byte[] bytes = new byte[20000];
+        Arrays.fill(bytes, (byte) 'b');
+        bytes[0] = 'a';
+        //when
+        printStream.write(bytes, 0, bytes.length);
+        //then
+        assertThat(out.size()).isEqualTo(19999);
+        assertThat(copyArray.size()).isEqualTo(19999);
+    }
+
+    @Test
+    public void whenWriteBeyondBufferThenThrowException() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.pipeline(core).build();
+        //then
+        assertThatCode(() -> printStream.write(new byte[4], 2, 3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void pipelineCanBuildIndependentStreams() {
+        //given
+        final PrintStreamPipeline pipeline = PrintStreamWrapper.pipeline(core);
+        final PrintStream first = pipeline.build();
+        final PrintStreamWrapper.PrimitiveByteFilter dropA = b -> b != 'a';
+        final PrintStream second = pipeline.filter(dropA).build();
+        //when
+        first.print("a");
+        second.print("ab");
+        //then
+        assertThat(out.toString()).isEqualTo("ab");
+    }
+}
@@ -0,0 +1,163 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link RateLimitPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class RateLimitPrintStreamWrapperTest {
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream core;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        core = new PrintStream(out);
+    }
+
+    @Test
+    public void requiresRateLimit() {
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.rateLimit(core, null))
+                                        .withMessageContaining("rateLimit");
+    }
+
+    @Test
+    public void writesLinesWithinLimit() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 3));
+        //when
+        wrapper.println("one");
+        wrapper.println("two");
+        wrapper.println("three");
+        //then
+        assertThat(out.toString()).isEqualTo(String.format("one%ntwo%nthree%n"));
+    }
+
+    @Test
+    public void suppressesLinesOverLimit() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 2));
+        //when
+        for (int i = 0; i < 5; i++) {
+            wrapper.print("line " + i + "\n");
+        }
+        //then
+        assertThat(out.toString()).isEqualTo("line 0\nline 1\n");
+    }
+
+    @Test
+    public void decidesOnWholeLines() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 1));
+        //when
+        wrapper.print("par");
+        wrapper.write('t');
+        wrapper.print("ial\nsecond");
+        wrapper.print(" line\n");
+        //then
+        assertThat(out.toString()).isEqualTo("partial\n");
+    }
+
+    @Test
+    public void limitsBytesPerLine() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.bytesPerSecond(1, 10));
+        //when
+        wrapper.print("short\nthis line is too long\nok\n");
+        //then
+        assertThat(out.toString()).isEqualTo("short\nok\n");
+    }
+
+    @Test
+    public void writesSampleOfSuppressedLines() {
+        //given
+        final PrintStream wrapper =
+                PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 1).sampling(3));
+        //when
+        for (int i = 0; i < 8; i++) {
+            wrapper.print(i + "\n");
+        }
+        //then
+        assertThat(out.toString()).isEqualTo("0\n3\n6\n");
+    }
+
+    @Test
+    public void summarisesSuppressedLinesOnClose() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 1));
+        wrapper.print("a\nb\nc\n");
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo(String.format("a\n[rate limited] suppressed 2 lines%n"));
+    }
+
+    @Test
+    public void summarisesSuppressedLinesPeriodicallyOnFlush() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(
+                core, RateLimit.linesPerSecond(1, 1).summarisingEvery(10, TimeUnit.MILLISECONDS));
+        //when
+        wrapper.print("a\nb\n");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!out.toString().contains("suppressed") && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            wrapper.flush();
+        }
+        //then
+        assertThat(out.toString()).isEqualTo(String.format("a\n[rate limited] suppressed 1 lines%n"));
+        wrapper.close();
+    }
+
+    @Test
+    public void timerDoesNotWriteSummary() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(
+                core, RateLimit.linesPerSecond(1, 1).summarisingEvery(10, TimeUnit.MILLISECONDS));
+        wrapper.print("a\nb\n");
+        //when
+        Thread.sleep(50);
+        //then
+        assertThat(out.toString()).isEqualTo("a\n");
+        wrapper.close();
+    }
+
+    @Test
+    public void summaryDueMidLineIsWrittenBeforeNextLine() throws InterruptedException {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(
+                core, RateLimit.linesPerSecond(1, 1).sampling(2).summarisingEvery(10, TimeUnit.MILLISECONDS));
+        wrapper.print("a\nb\nc");
+        //when
+        Thread.sleep(50);
+        final String midLine = out.toString();
+        wrapper.print("d\ne\n");
+        //then
+        assertThat(midLine).isEqualTo("a\nc");
+        assertThat(out.toString()).isEqualTo(String.format("a\ncd\n[rate limited] suppressed 1 lines%n"));
+        wrapper.close();
+    }
+
+    @Test
+    public void noSummaryWhenNothingSuppressed() {
+        //given
+        final PrintStream wrapper = PrintStreamWrapper.rateLimit(core, RateLimit.linesPerSecond(1, 1));
+        wrapper.print("a\n");
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("a\n");
+    }
+}
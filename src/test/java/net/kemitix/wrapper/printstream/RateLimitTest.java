@@ -0,0 +1,63 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link RateLimit}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class RateLimitTest {
+
+    @Test
+    public void rateMustBePositive() {
+        assertThatIllegalArgumentException().isThrownBy(() -> RateLimit.linesPerSecond(0, 1))
+                                            .withMessageContaining("rate");
+    }
+
+    @Test
+    public void burstMustBePositive() {
+        assertThatIllegalArgumentException().isThrownBy(() -> RateLimit.bytesPerSecond(1, 0))
+                                            .withMessageContaining("burst");
+    }
+
+    @Test
+    public void samplingMustNotBeNegative() {
+        assertThatIllegalArgumentException().isThrownBy(() -> RateLimit.linesPerSecond(1, 1).sampling(-1))
+                                            .withMessageContaining("oneIn");
+    }
+
+    @Test
+    public void summaryIntervalMustNotBeNegative() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> RateLimit.linesPerSecond(1, 1).summarisingEvery(-1, TimeUnit.SECONDS))
+                .withMessageContaining("interval");
+    }
+
+    @Test
+    public void summaryUnitIsRequired() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> RateLimit.linesPerSecond(1, 1).summarisingEvery(1, null))
+                .withMessageContaining("unit");
+    }
+
+    @Test
+    public void settingsAreCopied() {
+        //given
+        final RateLimit base = RateLimit.bytesPerSecond(1, 1);
+        //when
+        final RateLimit limit = base.sampling(10).summarisingEvery(2, TimeUnit.SECONDS);
+        //then
+        assertThat(base.getSampleOneIn()).isZero();
+        assertThat(base.getSummaryNanos()).isZero();
+        assertThat(limit.isPerByte()).isTrue();
+        assertThat(limit.getSampleOneIn()).isEqualTo(10);
+        assertThat(limit.getSummaryNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+}
@@ -0,0 +1,139 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link RingBufferOutputStream}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class RingBufferOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RingBufferOutputStream ring = new RingBufferOutputStream(8);
+
+    private void write(final String text) {
+        final byte[] bytes = text.getBytes();
+        ring.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void requirePositiveCapacity() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new RingBufferOutputStream(0));
+    }
+
+    @Test
+    public void rejectsRangeOutsideBuffer() {
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+                .isThrownBy(() -> ring.write(new byte[2], 1, 2));
+    }
+
+    @Test
+    public void emptyRingHasEmptySnapshot() {
+        assertThat(ring.snapshot()).isEmpty();
+        assertThat(ring.getCapacity()).isEqualTo(8);
+    }
+
+    @Test
+    public void keepsEverythingUntilFull() {
+        //when
+        write("abc");
+        ring.write('d');
+        //then
+        assertThat(new String(ring.snapshot())).isEqualTo("abcd");
+    }
+
+    @Test
+    public void keepsMostRecentBytesWhenWrapped() {
+        //when
+        write("abcdef");
+        write("ghij");
+        ring.write('k');
+        //then
+        assertThat(new String(ring.snapshot())).isEqualTo("defghijk");
+        assertThat(ring.getTotalBytes()).isEqualTo(11);
+    }
+
+    @Test
+    public void keepsTailOfWriteLargerThanCapacity() {
+        //given
+        write("xyz");
+        //when
+        write("0123456789");
+        //then
+        assertThat(new String(ring.snapshot())).isEqualTo("23456789");
+        assertThat(ring.getTotalBytes()).isEqualTo(13);
+    }
+
+    @Test
+    public void usableAsCopyTarget() {
+        //given
+        final RingBufferOutputStream recent = new RingBufferOutputStream(16);
+        final PrintStream printStream =
+                PrintStreamWrapper.copy(new PrintStream(new ByteArrayOutputStream()), new PrintStream(recent));
+        //when
+        for (int i = 0; i < 10; i++) {
+            printStream.print("line " + i + "\n");
+        }
+        //then
+        assertThat(new String(recent.snapshot())).isEqualTo("7\nline 8\nline 9\n");
+    }
+
+    @Test
+    public void dumpsSnapshotToFile() throws IOException {
+        //given
+        final Path path = folder.newFile().toPath();
+        write("0123456789");
+        //when
+        ring.dumpTo(path);
+        //then
+        assertThat(Files.readAllBytes(path)).isEqualTo("23456789".getBytes());
+    }
+
+    @Test
+    public void snapshotWhileWritingIsContiguous() throws InterruptedException {
+        //given
+        final RingBufferOutputStream large = new RingBufferOutputStream(256 * 1024);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            final byte[] sequence = new byte[100];
+            int next = 0;
+            while (running.get()) {
+                for (int i = 0; i < sequence.length; i++) {
+                    sequence[i] = (byte) next++;
+                }
+                large.write(sequence, 0, sequence.length);
+            }
+        });
+        writer.start();
+        try {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                //when
+                final byte[] snapshot = large.snapshot();
+                //then
+                for (int i = 1; i < snapshot.length; i++) {
+                    assertThat((byte) (snapshot[i] - snapshot[i - 1])).isEqualTo((byte) 1);
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
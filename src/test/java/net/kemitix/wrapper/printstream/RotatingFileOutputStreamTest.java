@@ -0,0 +1,202 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link RotatingFileOutputStream}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class RotatingFileOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    @Before
+    public void setUp() {
+        path = folder.getRoot().toPath().resolve("app.log");
+    }
+
+    private static void write(final RotatingFileOutputStream out, final String text) throws IOException {
+        final byte[] bytes = text.getBytes();
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private String read(final String name) throws IOException {
+        return new String(Files.readAllBytes(path.resolveSibling(name)));
+    }
+
+    private String readCompressed(final String name) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path.resolveSibling(name)))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString();
+        }
+    }
+
+    private String[] files() throws IOException {
+        try (Stream<Path> list = Files.list(folder.getRoot().toPath())) {
+            return list.map(p -> p.getFileName().toString()).sorted().toArray(String[]::new);
+        }
+    }
+
+    @Test
+    public void rejectNegativeLimits() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new RotatingFileOutputStream(path, -1, 0, TimeUnit.SECONDS, 1, false));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new RotatingFileOutputStream(path, 0, -1, TimeUnit.SECONDS, 1, false));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new RotatingFileOutputStream(path, 0, 0, TimeUnit.SECONDS, -1, false));
+    }
+
+    @Test
+    public void rollsOverBySize() throws IOException {
+        //given
+        final RotatingFileOutputStream out = new RotatingFileOutputStream(path, 10, 0, TimeUnit.SECONDS, 5, false);
+        //when
+        write(out, "first\n");
+        write(out, "second\n");
+        write(out, "third\n");
+        out.write('!');
+        out.close();
+        //then
+        assertThat(files()).containsExactly("app.log", "app.log.1", "app.log.2");
+        assertThat(read("app.log.1")).isEqualTo("first\n");
+        assertThat(read("app.log.2")).isEqualTo("second\n");
+        assertThat(read("app.log")).isEqualTo("third\n!");
+        assertThat(out.getHousekeepingFailure()).isEmpty();
+    }
+
+    @Test
+    public void rollsOverByAge() throws IOException, InterruptedException {
+        //given
+        final RotatingFileOutputStream out =
+                new RotatingFileOutputStream(path, 0, 20, TimeUnit.MILLISECONDS, 5, false);
+        write(out, "old\n");
+        Thread.sleep(40);
+        //when
+        write(out, "new\n");
+        out.close();
+        //then
+        assertThat(read("app.log.1")).isEqualTo("old\n");
+        assertThat(read("app.log")).isEqualTo("new\n");
+    }
+
+    @Test
+    public void compressesRolledFiles() throws IOException {
+        //given
+        final RotatingFileOutputStream out = new RotatingFileOutputStream(path, 10, 0, TimeUnit.SECONDS, 5, true);
+        //when
+        write(out, "first\n");
+        write(out, "second\n");
+        out.close();
+        //then
+        assertThat(files()).containsExactly("app.log", "app.log.1.gz");
+        assertThat(readCompressed("app.log.1.gz")).isEqualTo("first\n");
+        assertThat(read("app.log")).isEqualTo("second\n");
+    }
+
+    @Test
+    public void keepsOnlyNewestRolledFiles() throws IOException {
+        //given
+        final RotatingFileOutputStream out = new RotatingFileOutputStream(path, 4, 0, TimeUnit.SECONDS, 2, false);
+        //when
+        for (int i = 1; i <= 5; i++) {
+            write(out, i + "\n");
+            write(out, i + "\n");
+        }
+        out.close();
+        //then
+        assertThat(files()).containsExactly("app.log", "app.log.3", "app.log.4");
+        assertThat(read("app.log.4")).isEqualTo("4\n4\n");
+        assertThat(read("app.log")).isEqualTo("5\n5\n");
+    }
+
+    @Test
+    public void continuesNumberingAfterRestart() throws IOException {
+        //given
+        Files.write(path.resolveSibling("app.log.7.gz"), new byte[0]);
+        Files.write(path, "before\n".getBytes());
+        final RotatingFileOutputStream out = new RotatingFileOutputStream(path, 10, 0, TimeUnit.SECONDS, 5, false);
+        //when
+        write(out, "after\n");
+        out.close();
+        //then
+        assertThat(read("app.log.8")).isEqualTo("before\n");
+        assertThat(read("app.log")).isEqualTo("after\n");
+    }
+
+    @Test
+    public void rollsOverRepeatedlyUnderLoad() throws IOException {
+        //given
+        final RotatingFileOutputStream out =
+                new RotatingFileOutputStream(path, 100, 0, TimeUnit.SECONDS, 1000, false);
+        final PrintStream printStream = new PrintStream(out);
+        //when
+        for (int i = 0; i < 500; i++) {
+            printStream.print("line " + i + "\n");
+        }
+        out.close();
+        //then
+        final String all = Arrays.stream(files())
+                                 .filter(name -> !name.equals("app.log"))
+                                 .sorted((a, b) -> Integer.compare(sequence(a), sequence(b)))
+                                 .map(this::readQuietly)
+                                 .collect(Collectors.joining()) + read("app.log");
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            expected.append("line ").append(i).append('\n');
+        }
+        assertThat(all).isEqualTo(expected.toString());
+        assertThat(files()).allMatch(name -> !name.startsWith("."));
+    }
+
+    private static int sequence(final String name) {
+        return Integer.parseInt(name.substring("app.log.".length()));
+    }
+
+    private String readQuietly(final String name) {
+        try {
+            return read(name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void writesAfterCloseFail() throws IOException {
+        //given
+        final RotatingFileOutputStream out = new RotatingFileOutputStream(path, 0, 0, TimeUnit.SECONDS, 1, false);
+        out.close();
+        out.close();
+        out.flush();
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> out.write('x'));
+    }
+}
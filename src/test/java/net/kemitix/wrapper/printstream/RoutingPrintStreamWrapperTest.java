@@ -0,0 +1,185 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link RoutingPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class RoutingPrintStreamWrapperTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private RoutingPrintStreamWrapper routing;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        routing = PrintStreamWrapper.routing(new PrintStream(out));
+    }
+
+    @Test
+    public void requireSink() {
+        assertThatNullPointerException()
+                .isThrownBy(() -> routing.bind(null))
+                .withMessageContaining("printStream");
+    }
+
+    @Test
+    public void unboundThreadWritesToOriginal() {
+        //when
+        routing.println("unbound");
+        //then
+        assertThat(out.toString()).isEqualTo("unbound" + EOL);
+        assertThat(routing.getBoundSink()).isEmpty();
+    }
+
+    @Test
+    public void boundThreadWritesToSink() {
+        //given
+        final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        final PrintStream sink = new PrintStream(captured);
+        //when
+        final RoutingPrintStreamWrapper.Binding binding = routing.bind(sink);
+        try {
+            routing.println("bound");
+            routing.printf("%d%n", 1);
+            assertThat(routing.getBoundSink()).contains(sink);
+        } finally {
+            binding.close();
+        }
+        routing.println("after");
+        //then
+        assertThat(captured.toString()).isEqualTo("bound" + EOL + "1" + EOL);
+        assertThat(out.toString()).isEqualTo("after" + EOL);
+    }
+
+    @Test
+    public void closingNestedBindingRestoresOuter() {
+        //given
+        final ByteArrayOutputStream outer = new ByteArrayOutputStream();
+        final ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        //when
+        final RoutingPrintStreamWrapper.Binding outerBinding = routing.bind(new PrintStream(outer));
+        try {
+            final RoutingPrintStreamWrapper.Binding innerBinding = routing.bind(new PrintStream(inner));
+            try {
+                routing.print("inner");
+            } finally {
+                innerBinding.close();
+            }
+            routing.print("outer");
+        } finally {
+            outerBinding.close();
+        }
+        //then
+        assertThat(inner.toString()).isEqualTo("inner");
+        assertThat(outer.toString()).isEqualTo("outer");
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void childThreadsInheritBinding() throws InterruptedException {
+        //given
+        final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        final Thread child;
+        //when
+        final RoutingPrintStreamWrapper.Binding binding = routing.bind(new PrintStream(captured));
+        try {
+            child = new Thread(() -> routing.print("child"));
+        } finally {
+            binding.close();
+        }
+        child.start();
+        child.join();
+        //then
+        assertThat(captured.toString()).isEqualTo("child");
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void otherThreadsAreNotAffected() throws InterruptedException {
+        //given
+        final Thread other = new Thread(() -> routing.print("other"));
+        other.start();
+        //when
+        final RoutingPrintStreamWrapper.Binding binding = routing.bind(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            other.join();
+        } finally {
+            binding.close();
+        }
+        //then
+        assertThat(out.toString()).isEqualTo("other");
+    }
+
+    @Test
+    public void wrappedTasksRunWithSubmittersBinding() throws Exception {
+        //given
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> { }).get();
+        final List<ByteArrayOutputStream> captures = new ArrayList<>();
+        //when
+        for (int i = 0; i < 4; i++) {
+            final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            captures.add(captured);
+            final int task = i;
+            final RoutingPrintStreamWrapper.Binding binding = routing.bind(new PrintStream(captured));
+            try {
+                executor.submit(routing.wrap(() -> routing.print("runnable-" + task))).get();
+                assertThat(executor.submit(routing.wrap(() -> {
+                    routing.print("+callable");
+                    return task;
+                })).get()).isEqualTo(task);
+            } finally {
+                binding.close();
+            }
+        }
+        executor.submit(() -> routing.print("unwrapped")).get();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        //then
+        for (int i = 0; i < 4; i++) {
+            assertThat(captures.get(i).toString()).isEqualTo("runnable-" + i + "+callable");
+        }
+        assertThat(out.toString()).isEqualTo("unwrapped");
+    }
+
+    @Test
+    public void flushFlushesSinkAndOriginal() {
+        //given
+        final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        final ByteArrayOutputStream originalBytes = new ByteArrayOutputStream();
+        final RoutingPrintStreamWrapper buffered = PrintStreamWrapper.routing(
+                new PrintStream(new BufferedOutputStream(originalBytes)));
+        buffered.print("original");
+        //when
+        final RoutingPrintStreamWrapper.Binding binding =
+                buffered.bind(new PrintStream(new BufferedOutputStream(captured)));
+        try {
+            buffered.print("sink");
+            buffered.flush();
+        } finally {
+            binding.close();
+        }
+        //then
+        assertThat(captured.toString()).isEqualTo("sink");
+        assertThat(originalBytes.toString()).isEqualTo("original");
+    }
+}
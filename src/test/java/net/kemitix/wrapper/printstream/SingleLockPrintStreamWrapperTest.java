@@ -0,0 +1,156 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SingleLockPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class SingleLockPrintStreamWrapperTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream core;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        core = new PrintStream(out);
+    }
+
+    @Test
+    public void passesTypedCallsToChainUnchanged() {
+        //given
+        final PrintStream chain = PrintStreamWrapper.filter(core, (String s) -> !s.contains("drop"));
+        final PrintStream printStream = PrintStreamWrapper.singleLock(chain);
+        //when
+        printStream.print("drop this");
+        printStream.println("drop this too");
+        printStream.print("keep");
+        printStream.println();
+        //then
+        assertThat(out.toString()).isEqualTo("keep" + EOL);
+    }
+
+    @Test
+    public void passesEveryKindOfCall() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.singleLock(core);
+        //when
+        printStream.print(true);
+        printStream.print('c');
+        printStream.print(1);
+        printStream.print(2L);
+        printStream.print(3.5f);
+        printStream.print(4.5d);
+        printStream.print(new char[]{'x', 'y'});
+        printStream.print((Object) "o");
+        printStream.println(false);
+        printStream.println('d');
+        printStream.println(5);
+        printStream.println(6L);
+        printStream.println(7.5f);
+        printStream.println(8.5d);
+        printStream.println(new char[]{'z'});
+        printStream.println((Object) "p");
+        printStream.printf("%s-", "f").printf(Locale.ROOT, "%.1f-", 1.5d);
+        printStream.append("ab").append("xcdx", 1, 3).append('e');
+        printStream.write('w');
+        printStream.write(new byte[]{'v', 'u'}, 1, 1);
+        printStream.flush();
+        //then
+        assertThat(out.toString()).isEqualTo(
+                "truec123.54.5xyofalse" + EOL + "d" + EOL + "5" + EOL + "6" + EOL + "7.5" + EOL + "8.5" + EOL
+                + "z" + EOL + "p" + EOL + "f-1.5-abcdewu");
+        assertThat(printStream.checkError()).isFalse();
+    }
+
+    @Test
+    public void closesChain() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.singleLock(core);
+        //when
+        printStream.close();
+        core.print("x");
+        //then
+        assertThat(core.checkError()).isTrue();
+    }
+
+    @Test
+    public void eachPrintlnIsWrittenWhole() throws InterruptedException {
+        //given
+        final PrintStream slow = new PrintStream(out) {
+            @Override
+            public void println(final String x) {
+                for (final char c : x.toCharArray()) {
+                    write(c);
+                    Thread.yield();
+                }
+                write('\n');
+            }
+        };
+        final PrintStream printStream = PrintStreamWrapper.singleLock(slow);
+        final int threads = 4;
+        final int lines = 50;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String line = "line-from-thread-" + t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < lines; i++) {
+                    printStream.println(line);
+                }
+                done.countDown();
+            }));
+        }
+        //when
+        writers.forEach(Thread::start);
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        //then
+        final String[] written = out.toString().split("\n");
+        assertThat(written).hasSize(threads * lines);
+        assertThat(written).allMatch(line -> line.matches("line-from-thread-\\d"));
+    }
+
+    @Test
+    public void innerStagesDoNotTakeTheirOwnLocks() throws InterruptedException {
+        //given
+        final PrintStreamWrapper.PrimitiveByteFilter dropX = b -> b != 'x';
+        final PrintStream chain = PrintStreamWrapper.filter(core, dropX);
+        final PrintStream printStream = PrintStreamWrapper.singleLock(chain);
+        final Thread writer = new Thread(() -> printStream.write(new byte[]{'a', 'x', 'b'}, 0, 3));
+        //when
+        synchronized (chain) {
+            writer.start();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        //then
+        assertThat(writer.isAlive()).isFalse();
+        assertThat(out.toString()).isEqualTo("ab");
+    }
+
+    @Test
+    public void wrapsChain() {
+        //given
+        final PrintStream chain = PrintStreamWrapper.copy(core, new PrintStream(new ByteArrayOutputStream()));
+        //when
+        final PrintStreamWrapper printStream = (PrintStreamWrapper) PrintStreamWrapper.singleLock(chain);
+        //then
+        assertThat(printStream.getWrapperSubject()).isSameAs(chain);
+        assertThat(printStream.getInnerWrapper()).isNotEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StageMetrics}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class StageMetricsTest {
+
+    @Test
+    public void countsBytesAndLines() {
+        //given
+        final StageMetrics metrics = new StageMetrics("stage", false);
+        final byte[] bytes = "a\nbc\nd".getBytes();
+        //when
+        metrics.received(10);
+        metrics.wrote(bytes, 0, bytes.length, 0);
+        metrics.wrote('\n', 0);
+        //then
+        assertThat(metrics.getName()).isEqualTo("stage");
+        assertThat(metrics.getBytesIn()).isEqualTo(10);
+        assertThat(metrics.getBytesOut()).isEqualTo(7);
+        assertThat(metrics.getDroppedBytes()).isEqualTo(3);
+        assertThat(metrics.getLines()).isEqualTo(3);
+        assertThat(metrics.getWrites()).isEqualTo(2);
+    }
+
+    @Test
+    public void bytesInAreBytesOutWhenOnlySeenOnTheWayOut() {
+        //given
+        final StageMetrics metrics = new StageMetrics("stage", true);
+        //when
+        metrics.wrote(new byte[4], 0, 4, 0);
+        //then
+        assertThat(metrics.getBytesIn()).isEqualTo(4);
+        assertThat(metrics.getDroppedBytes()).isZero();
+    }
+
+    @Test
+    public void stringsPrintedOnAreNotCountedAsReceived() {
+        //given
+        final StageMetrics metrics = new StageMetrics("stage", true);
+        //when
+        metrics.received("abcd");
+        metrics.wrote("ab\n", 0);
+        metrics.wrote(new byte[2], 0, 2, 0);
+        //then
+        assertThat(metrics.getBytesIn()).isEqualTo(6);
+        assertThat(metrics.getBytesOut()).isEqualTo(5);
+        assertThat(metrics.getLines()).isEqualTo(1);
+        assertThat(metrics.getWrites()).isEqualTo(2);
+    }
+
+    @Test
+    public void droppedBytesIsNeverNegative() {
+        //given
+        final StageMetrics metrics = new StageMetrics("stage", false);
+        //when
+        metrics.wrote(new byte[4], 0, 4, 0);
+        //then
+        assertThat(metrics.getDroppedBytes()).isZero();
+    }
+
+    @Test
+    public void recordsLatency() {
+        //given
+        final StageMetrics metrics = new StageMetrics("stage", false);
+        //when
+        metrics.wrote('a', 0);
+        metrics.wrote('a', 1);
+        metrics.wrote('a', 100);
+        metrics.wrote('a', 1000);
+        //then
+        assertThat(metrics.getMeanLatencyNanos()).isEqualTo(275);
+        assertThat(metrics.getMaxLatencyNanos()).isEqualTo(1000);
+        final long[] histogram = metrics.getLatencyHistogram();
+        assertThat(histogram).hasSize(Long.SIZE);
+        assertThat(histogram[0]).isEqualTo(1);
+        assertThat(histogram[1]).isEqualTo(1);
+        assertThat(histogram[7]).isEqualTo(1);
+        assertThat(histogram[10]).isEqualTo(1);
+        assertThat(histogram).containsOnly(0, 1);
+    }
+
+    @Test
+    public void meanLatencyIsZeroWithoutWrites() {
+        assertThat(new StageMetrics("stage", false).getMeanLatencyNanos()).isZero();
+    }
+}
@@ -0,0 +1,276 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+/**
+ * Tests for {@link SwappablePrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class SwappablePrintStreamWrapperTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream core;
+
+    private SwappablePrintStreamWrapper swappable;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        core = new PrintStream(out);
+        swappable = PrintStreamWrapper.swappable(core);
+    }
+
+    @Test
+    public void requiresPipeline() {
+        assertThatNullPointerException().isThrownBy(() -> swappable.swap(null))
+                                        .withMessageContaining("pipeline");
+    }
+
+    @Test
+    public void writesToCoreBeforeFirstSwap() {
+        //when
+        swappable.println("direct");
+        //then
+        assertThat(out.toString()).isEqualTo("direct" + EOL);
+        assertThat(swappable.getWrapperSubject()).isSameAs(core);
+    }
+
+    @Test
+    public void writesThroughNewPipeline() {
+        //given
+        swappable.swap(next -> PrintStreamWrapper.filter(next, (String s) -> !s.contains("drop")));
+        //when
+        swappable.println("drop");
+        swappable.println("keep");
+        //then
+        assertThat(out.toString()).isEqualTo("keep" + EOL);
+    }
+
+    @Test
+    public void closesOldPipelineButNotCore() throws InterruptedException {
+        //given
+        final AtomicBoolean closed = new AtomicBoolean();
+        swappable.swap(next -> new PrintStream(next) {
+            @Override
+            public void close() {
+                closed.set(true);
+                super.close();
+            }
+        });
+        swappable.print("old ");
+        //when
+        swappable.swap(next -> next);
+        swappable.print("new");
+        //then
+        assertThat(awaitTrue(closed)).isTrue();
+        assertThat(out.toString()).isEqualTo("old new");
+        assertThat(core.checkError()).isFalse();
+    }
+
+    @Test
+    public void oldPipelineIsClosedOnceCallsInFlightReturn() throws Exception {
+        //given
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final List<String> events = new ArrayList<>();
+        swappable.swap(next -> new PrintStream(next) {
+            @Override
+            public void println(final String s) {
+                entered.countDown();
+                await(proceed);
+                synchronized (events) {
+                    events.add("written " + s);
+                }
+                super.println(s);
+            }
+
+            @Override
+            public void close() {
+                synchronized (events) {
+                    // PrintStream.close() calls itself again through its own writer
+                    if (!events.contains("closed")) {
+                        events.add("closed");
+                    }
+                }
+                super.close();
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> swappable.println("slow"));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            //when
+            swappable.swap(next -> next);
+            //then
+            synchronized (events) {
+                assertThat(events).isEmpty();
+            }
+            swappable.println("new");
+            proceed.countDown();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!closed(events) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            synchronized (events) {
+                assertThat(events).containsExactly("written slow", "closed");
+            }
+            assertThat(out.toString()).isEqualTo("new" + EOL + "slow" + EOL);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean closed(final List<String> events) {
+        synchronized (events) {
+            return events.contains("closed");
+        }
+    }
+
+    @Test
+    public void canSwapFromWithinCallOnPipeline() throws InterruptedException {
+        //given
+        final AtomicBoolean closed = new AtomicBoolean();
+        swappable.swap(next -> new PrintStream(next) {
+            @Override
+            public void println(final String s) {
+                swappable.swap(inner -> inner);
+                super.println(s);
+                assertThat(closed).isFalse();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+                super.close();
+            }
+        });
+        //when
+        swappable.println("swapping");
+        swappable.println("swapped");
+        //then
+        assertThat(awaitTrue(closed)).isTrue();
+        assertThat(out.toString()).isEqualTo("swapping" + EOL + "swapped" + EOL);
+    }
+
+    @Test
+    public void oldPipelineIsClosedOffCallersThread() throws InterruptedException {
+        //given
+        final BlockingQueue<Thread> closers = new LinkedBlockingQueue<>();
+        swappable.swap(next -> new PrintStream(next) {
+            @Override
+            public void close() {
+                closers.add(Thread.currentThread());
+                super.close();
+            }
+        });
+        //when
+        swappable.swap(next -> next);
+        //then
+        final Thread closer = closers.poll(5, TimeUnit.SECONDS);
+        assertThat(closer).isNotNull()
+                          .isNotSameAs(Thread.currentThread());
+        assertThat(closer.getName()).isEqualTo("swappable-print-stream-close");
+    }
+
+    private static boolean awaitTrue(final AtomicBoolean flag) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!flag.get() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return flag.get();
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void noOutputIsLostWhileSwapping() throws Exception {
+        //given
+        final int threads = 4;
+        final int lines = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < lines; i++) {
+                        swappable.println("line");
+                    }
+                }));
+            }
+            //when
+            for (int i = 0; i < 50; i++) {
+                swappable.swap(next -> PrintStreamWrapper.transform(next, (String s) -> s));
+            }
+            for (final Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        //then
+        final String written = out.toString();
+        assertThat(written.length() - written.replace("line", "").length()).isEqualTo(threads * lines * 4);
+        assertThat(core.checkError()).isFalse();
+    }
+
+    @Test
+    public void closeClosesPipelineAndCore() {
+        //given
+        final AtomicBoolean closed = new AtomicBoolean();
+        swappable.swap(next -> new PrintStream(next) {
+            @Override
+            public void close() {
+                closed.set(true);
+                super.close();
+            }
+        });
+        //when
+        swappable.close();
+        //then
+        assertThat(closed).isTrue();
+        core.print("x");
+        assertThat(core.checkError()).isTrue();
+    }
+
+    @Test
+    public void installsOnSystemOutOnce() {
+        final PrintStream systemOut = System.out;
+        try {
+            //when
+            final SwappablePrintStreamWrapper installed = PrintStreamWrapper.installOnSystemOut();
+            //then
+            assertThat(System.out).isSameAs(installed);
+            assertThat(installed.getWrapperSubject()).isSameAs(systemOut);
+            assertThat(PrintStreamWrapper.installOnSystemOut()).isSameAs(installed);
+        } finally {
+            System.setOut(systemOut);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package net.kemitix.wrapper.printstream;
+
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.LineFilter;
+import net.kemitix.wrapper.printstream.PrintStreamWrapper.LineTransform;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for {@link TextTransformPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class TextTransformPrintStreamWrapperTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+
+    private List<Integer> writes;
+
+    private PrintStream core;
+
+    private PrintStream wrapper;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        writes = new ArrayList<>();
+        core = new PrintStream(out) {
+            @Override
+            public void write(final byte[] buf, final int off, final int len) {
+                writes.add(len);
+                super.write(buf, off, len);
+            }
+        };
+        wrapper = PrintStreamWrapper.transformLines(core, String::toUpperCase);
+    }
+
+    @Test
+    public void requiresTransformer() {
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.transformLines(core, null))
+                                        .withMessageContaining("transformer");
+    }
+
+    @Test
+    public void transformsEveryPrintMethod() {
+        //when
+        wrapper.println(new StringBuilder("object"));
+        wrapper.print("chars ".toCharArray());
+        wrapper.printf("%s %d%n", "format", 1);
+        wrapper.write("bytes\n".getBytes(), 0, 6);
+        wrapper.print('c');
+        wrapper.write('\n');
+        //then
+        assertThat(out.toString()).isEqualTo(
+                "OBJECT" + NL + "CHARS FORMAT 1" + NL + "BYTES\nC\n");
+    }
+
+    @Test
+    public void writesAllLinesFromOneWriteTogether() {
+        //given
+        final byte[] bytes = "one\ntwo\nthree\nfour".getBytes();
+        //when
+        wrapper.write(bytes, 0, bytes.length);
+        //then
+        assertThat(out.toString()).isEqualTo("ONE\nTWO\nTHREE\n");
+        assertThat(writes).containsExactly(14);
+    }
+
+    @Test
+    public void holdsPartialLineUntilClosed() {
+        //given
+        wrapper.print("partial");
+        assertThat(out.toString()).isEmpty();
+        //when
+        wrapper.close();
+        //then
+        assertThat(out.toString()).isEqualTo("PARTIAL");
+    }
+
+    @Test
+    public void decodesCharactersSplitAcrossWrites() {
+        //given
+        final Charset charset = Charset.defaultCharset();
+        final byte[] bytes = "caf\u00e9\n".getBytes(charset);
+        assumeTrue("default charset has multi-byte characters", bytes.length > "cafe\n".length());
+        //when
+        for (final byte b : bytes) {
+            wrapper.write(b);
+        }
+        //then
+        assertThat(new String(out.toByteArray(), charset)).isEqualTo("CAF\u00c9\n");
+    }
+
+    @Test
+    public void transformsLongLines() {
+        //given
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        //when
+        wrapper.print(text + "\n");
+        //then
+        assertThat(out.toString()).isEqualTo(text.toString().toUpperCase() + "\n");
+    }
+
+    @Test
+    public void dropsLineWhenTransformReturnsNull() {
+        //given
+        final PrintStream dropping = PrintStreamWrapper.transformLines(core, s -> s.startsWith("#") ? null : s);
+        //when
+        dropping.print("keep\n# drop\nkeep too\n");
+        //then
+        assertThat(out.toString()).isEqualTo("keep\nkeep too\n");
+    }
+
+    @Test
+    public void writesAfterCloseSetTheErrorFlag() {
+        //given
+        wrapper.close();
+        //when
+        wrapper.print("late\n");
+        //then
+        assertThat(wrapper.checkError()).isTrue();
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void filtersLinesWithoutCopyingThem() {
+        //given
+        final List<CharSequence> seen = new ArrayList<>();
+        final PrintStream filtered = PrintStreamWrapper.filter(core, (CharSequence line) -> {
+            seen.add(line);
+            return line.length() > 0 && line.charAt(0) != '#';
+        });
+        //when
+        filtered.print("keep\n# drop\n\nkeep too\n");
+        //then
+        assertThat(out.toString()).isEqualTo("keep\nkeep too\n");
+        assertThat(seen).hasSize(4)
+                        .allSatisfy(line -> assertThat(line).isNotInstanceOf(String.class));
+    }
+
+    @Test
+    public void combinesLineFilters() {
+        //given
+        final LineFilter hasA = line -> line.toString().contains("a");
+        final LineFilter hasB = line -> line.toString().contains("b");
+        final String text = "a\nb\nab\nc\n";
+        //when
+        PrintStreamWrapper.filter(core, hasA.and(hasB)).print(text);
+        PrintStreamWrapper.filter(core, hasA.or(hasB)).print(text);
+        PrintStreamWrapper.filter(core, hasA.negate()).print(text);
+        //then
+        assertThat(out.toString()).isEqualTo("ab\n" + "a\nb\nab\n" + "b\nc\n");
+    }
+
+    @Test
+    public void transformsLinesWithoutCopyingThem() {
+        //given
+        final PrintStream trimmed = PrintStreamWrapper.transform(core, (CharSequence line) -> {
+            if (line.length() > 4) {
+                return line.subSequence(0, 4);
+            }
+            return line;
+        });
+        //when
+        trimmed.print("abcdefg\nxy\n");
+        //then
+        assertThat(out.toString()).isEqualTo("abcd\nxy\n");
+    }
+
+    @Test
+    public void linesAreGivenWithoutCarriageReturnAndKeepTheirLineEnding() {
+        //given
+        final List<String> seen = new ArrayList<>();
+        final PrintStream nonBlank = PrintStreamWrapper.filter(core, (CharSequence line) -> {
+            seen.add(line.toString());
+            return line.length() > 0;
+        });
+        //when
+        nonBlank.print("foo\r\n\r\nbar\n\n");
+        //then
+        assertThat(seen).containsExactly("foo", "", "bar", "");
+        assertThat(out.toString()).isEqualTo("foo\r\nbar\n");
+    }
+
+    @Test
+    public void cachedCharBufferResultIsWrittenEachTime() {
+        //given
+        final CharBuffer cached = CharBuffer.wrap("same");
+        final PrintStream constant = PrintStreamWrapper.transform(core, (CharSequence line) -> cached);
+        //when
+        constant.print("a\nb\n");
+        //then
+        assertThat(out.toString()).isEqualTo("same\nsame\n");
+    }
+
+    @Test
+    public void transformCanDropLines() {
+        //given
+        final PrintStream dropping = PrintStreamWrapper.transform(core, (CharSequence line) -> null);
+        //when
+        dropping.print("gone\n");
+        //then
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void requiresLineFilterAndTransform() {
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.filter(core, (LineFilter) null))
+                                        .withMessageContaining("filter");
+        assertThatNullPointerException().isThrownBy(() -> PrintStreamWrapper.transform(core, (LineTransform) null))
+                                        .withMessageContaining("transformer");
+    }
+}
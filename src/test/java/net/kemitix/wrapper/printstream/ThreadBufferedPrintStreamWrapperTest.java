@@ -0,0 +1,195 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ThreadBufferedPrintStreamWrapper}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class ThreadBufferedPrintStreamWrapperTest {
+
+    private ByteArrayOutputStream out;
+
+    private PrintStream original;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        original = new PrintStream(out);
+    }
+
+    @Test
+    public void writesCompleteLinesOnFlush() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        //when
+        printStream.println("one");
+        printStream.printf("%s%n", "two");
+        final byte[] bytes = "three\nfo".getBytes();
+        printStream.write(bytes, 0, bytes.length);
+        printStream.write('u');
+        printStream.print("r\n");
+        printStream.flush();
+        //then
+        assertThat(out.toString()).isEqualTo(String.format("one%ntwo%nthree\nfour\n"));
+    }
+
+    @Test
+    public void flushPassesOnPartialLine() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        //when
+        printStream.print("partial");
+        printStream.flush();
+        //then
+        assertThat(out.toString()).isEqualTo("partial");
+    }
+
+    @Test
+    public void closeWritesQueuedLinesAndClosesOriginal() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        printStream.println("line");
+        printStream.print("tail");
+        //when
+        printStream.close();
+        //then
+        assertThat(out.toString()).isEqualTo("line" + System.lineSeparator() + "tail");
+        original.print("x");
+        assertThat(original.checkError()).isTrue();
+    }
+
+    @Test
+    public void writesAfterCloseAreAnError() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        printStream.close();
+        //when
+        printStream.println("late");
+        //then
+        assertThat(printStream.checkError()).isTrue();
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void writesLongLines() {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            line.append((char) ('a' + i % 26));
+        }
+        //when
+        printStream.println("short");
+        printStream.println(line);
+        printStream.println("short");
+        printStream.flush();
+        //then
+        final String eol = System.lineSeparator();
+        assertThat(out.toString()).isEqualTo("short" + eol + line + eol + "short" + eol);
+    }
+
+    @Test
+    public void linesFromThreadsAreNotInterleaved() throws InterruptedException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        final int threads = 8;
+        final int lines = 200;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String word = "thread-" + t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < lines; i++) {
+                    printStream.print(word);
+                    printStream.print(' ');
+                    printStream.print(i);
+                    printStream.print('\n');
+                }
+                done.countDown();
+            }));
+        }
+        //when
+        writers.forEach(Thread::start);
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        printStream.flush();
+        //then
+        final String[] written = out.toString().split("\n");
+        assertThat(written).hasSize(threads * lines);
+        assertThat(written).allMatch(line -> line.matches("thread-\\d \\d+"));
+    }
+
+    @Test
+    public void flushWritesCallersLinesWhileOtherThreadsWrite() throws InterruptedException {
+        //given
+        final PrintStream printStream = PrintStreamWrapper.threadBuffered(original);
+        final int threads = 8;
+        final int lines = 200;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger missing = new AtomicInteger();
+        final List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String word = "thread-" + t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < lines; i++) {
+                    final String line = word + " " + i + "\n";
+                    printStream.print(line);
+                    printStream.flush();
+                    if (!out.toString().contains(line)) {
+                        missing.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }));
+        }
+        //when
+        writers.forEach(Thread::start);
+        //then
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(missing).hasValue(0);
+    }
+
+    @Test
+    public void writersDoNotWaitForOriginal() throws InterruptedException {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final PrintStream blocked = new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+                // discard
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final ThreadBufferedPrintStreamWrapper printStream = new ThreadBufferedPrintStreamWrapper(blocked);
+        //when
+        for (int i = 0; i < 1000; i++) {
+            printStream.println(i);
+        }
+        //then
+        assertThat(printStream.getPendingWrites()).isPositive();
+        release.countDown();
+        printStream.flush();
+        assertThat(printStream.getPendingWrites()).isZero();
+    }
+}
@@ -0,0 +1,75 @@
+package net.kemitix.wrapper.printstream;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TokenBucket}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    public void startsFull() {
+        //given
+        final TokenBucket bucket = new TokenBucket(10, 3, now::get);
+        //then
+        assertThat(bucket.tryTake(1)).isTrue();
+        assertThat(bucket.tryTake(1)).isTrue();
+        assertThat(bucket.tryTake(1)).isTrue();
+        assertThat(bucket.tryTake(1)).isFalse();
+    }
+
+    @Test
+    public void earnsTokensOverTime() {
+        //given
+        final TokenBucket bucket = new TokenBucket(10, 1, now::get);
+        bucket.tryTake(1);
+        assertThat(bucket.tryTake(1)).isFalse();
+        //when
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        //then
+        assertThat(bucket.tryTake(1)).isTrue();
+        assertThat(bucket.tryTake(1)).isFalse();
+    }
+
+    @Test
+    public void doesNotSaveMoreThanBurst() {
+        //given
+        final TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        //when
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        //then
+        assertThat(bucket.tryTake(2)).isTrue();
+        assertThat(bucket.tryTake(1)).isFalse();
+    }
+
+    @Test
+    public void rejectsMoreTokensThanBurst() {
+        //given
+        final TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        //then
+        assertThat(bucket.tryTake(3)).isFalse();
+        assertThat(bucket.tryTake(2)).isTrue();
+    }
+
+    @Test
+    public void takeGoesIntoDebt() {
+        //given
+        final TokenBucket bucket = new TokenBucket(10, 1, now::get);
+        //when
+        bucket.take(3);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        //then
+        assertThat(bucket.tryTake(1)).isFalse();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.tryTake(1)).isTrue();
+    }
+}